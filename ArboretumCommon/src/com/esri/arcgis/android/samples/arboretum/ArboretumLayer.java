@@ -0,0 +1,85 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import com.esri.android.map.Layer;
+import com.esri.android.map.ags.ArcGISFeatureLayer;
+import com.esri.android.map.ags.ArcGISTiledMapServiceLayer;
+
+/**
+ * The arboretum map services and layers the samples display. Each constant
+ * only describes its layer; the layer itself is created by
+ * {@link #create(ExportCache)}, normally through a {@link LayerRegistry} the
+ * first time it is needed.
+ * 
+ */
+public enum ArboretumLayer {
+
+	// plants on map service layer 1
+	UWBG(Kind.DYNAMIC, "UWBG/MapServer"),
+	// no plants
+	BASEMAPS(Kind.DYNAMIC, "Basemaps/MapServer"),
+	// plants on map service layer 3
+	PUBLIC_FEATURES(Kind.DYNAMIC, "PublicFeatures/MapServer"),
+	// plants
+	PUBLIC_FEATURES_PLANTS(Kind.FEATURE, "PublicFeatures/MapServer/3"),
+	// plants
+	UWBG_PLANTS(Kind.FEATURE, "UWBG/MapServer/1"),
+	PLANTS_WITH_BG_BASE_FEATURES(Kind.FEATURE, "PlantswithBGBase/MapServer/0"),
+	PLANTS_WITH_BG_BASE(Kind.DYNAMIC, "PlantswithBGBase/MapServer/0"),
+	ARB_PHOTOGRAPHY(Kind.DYNAMIC, "ArbPhotography/MapServer"),
+	// plants on map service layer 3
+	PUBLIC_FEATURES_TILED(Kind.TILED, "PublicFeatures/MapServer");
+
+	/** Root of the arboretum ArcGIS Server REST services. */
+	public static final String SERVICES_URL = "http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/";
+
+	/** How a layer is rendered. */
+	public enum Kind {
+		DYNAMIC, FEATURE, TILED
+	}
+
+	private final Kind mKind;
+	private final String mPath;
+
+	private ArboretumLayer(Kind kind, String path) {
+		mKind = kind;
+		mPath = path;
+	}
+
+	public Kind getKind() {
+		return mKind;
+	}
+
+	public String getUrl() {
+		return SERVICES_URL + mPath;
+	}
+
+	/**
+	 * Creates a new layer for this service. Feature layers are created in
+	 * on-demand mode; dynamic layers keep their exported images in the cache.
+	 */
+	public Layer create(ExportCache cache) {
+		switch (mKind) {
+		case FEATURE:
+			return new ArcGISFeatureLayer(getUrl(),
+					ArcGISFeatureLayer.MODE.ONDEMAND);
+		case TILED:
+			return new ArcGISTiledMapServiceLayer(getUrl());
+		default:
+			return new CachingDynamicMapServiceLayer(getUrl(), cache);
+		}
+	}
+
+}
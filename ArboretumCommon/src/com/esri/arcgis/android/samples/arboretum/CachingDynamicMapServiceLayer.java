@@ -0,0 +1,106 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import android.util.Log;
+
+import com.esri.android.map.ags.ArcGISDynamicMapServiceLayer;
+import com.esri.android.map.ags.ArcGISLayerInfo;
+import com.esri.core.geometry.Envelope;
+
+/**
+ * A dynamic map service layer that keeps the images it exports in an
+ * {@link ExportCache}, so a view that has been drawn before is served from
+ * disk instead of the server.
+ * 
+ * Images are keyed by service, visible layers, layer definitions, image size,
+ * scale and extent. The scale is rounded to a hundredth of a percent and the
+ * extent origin to whole pixels at that scale; requests that only differ by
+ * less than that draw the same image.
+ * 
+ */
+public class CachingDynamicMapServiceLayer extends ArcGISDynamicMapServiceLayer {
+
+	private static final String TAG = "CachingDynamicLayer";
+
+	// Steps of the scale key per unit of natural log of the resolution.
+	private static final double SCALE_STEPS = 10000.0;
+
+	private final String mServiceUrl;
+	private final ExportCache mCache;
+
+	public CachingDynamicMapServiceLayer(String url, ExportCache cache) {
+		super(url);
+		mServiceUrl = url;
+		mCache = cache;
+	}
+
+	@Override
+	protected byte[] getImage(int width, int height, Envelope extent)
+			throws Exception {
+		if (width <= 0 || height <= 0 || extent == null || extent.isEmpty()) {
+			return super.getImage(width, height, extent);
+		}
+
+		String key = keyFor(width, height, extent);
+		byte[] image = mCache.get(key);
+		if (image != null) {
+			return image;
+		}
+
+		image = super.getImage(width, height, extent);
+		if (image != null) {
+			mCache.put(key, image);
+		}
+		Log.d(TAG, "Exported " + mServiceUrl + ": " + mCache);
+		return image;
+	}
+
+	private String keyFor(int width, int height, Envelope extent) {
+		double resolution = extent.getWidth() / width;
+		StringBuilder key = new StringBuilder(mServiceUrl);
+		key.append('|');
+		appendVisibleLayers(key, getLayers());
+		Map<?, ?> definitions = getLayerDefinitions();
+		if (definitions != null && !definitions.isEmpty()) {
+			key.append('|').append(new TreeMap<Object, Object>(definitions));
+		}
+		key.append('|').append(width).append('x').append(height);
+		key.append('|').append(Math.round(Math.log(resolution) * SCALE_STEPS));
+		key.append('|').append(Math.round(extent.getXMin() / resolution));
+		key.append('|').append(Math.round(extent.getYMin() / resolution));
+		return key.toString();
+	}
+
+	/*
+	 * Appends the ids of the visible layers, descending only into visible
+	 * group layers.
+	 */
+	private static void appendVisibleLayers(StringBuilder key,
+			ArcGISLayerInfo[] layers) {
+		if (layers == null) {
+			return;
+		}
+		for (ArcGISLayerInfo layer : layers) {
+			if (layer.isVisible()) {
+				key.append(layer.getId()).append(',');
+				appendVisibleLayers(key, layer.getLayers());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import android.util.Log;
+
+import com.esri.core.tasks.identify.IdentifyParameters;
+import com.esri.core.tasks.identify.IdentifyResult;
+import com.esri.core.tasks.identify.IdentifyTask;
+
+/**
+ * Runs identify requests against a map service through an
+ * {@link IdentifyCache}, so a repeated tap, or one inside a prefetched area,
+ * is answered without going to the server.
+ * 
+ */
+public class CachingIdentifyTask {
+
+	private static final String TAG = "CachingIdentifyTask";
+
+	private final String mUrl;
+	private final IdentifyCache mCache;
+	private IdentifyTask mTask;
+
+	public CachingIdentifyTask(String url, IdentifyCache cache) {
+		mUrl = url;
+		mCache = cache;
+	}
+
+	/**
+	 * Returns the cached results for the parameters, or runs the identify
+	 * request and caches its results. Must not be called on the UI thread.
+	 */
+	public IdentifyResult[] execute(IdentifyParameters params)
+			throws Exception {
+		String key = mCache.keyFor(mUrl, params);
+		IdentifyResult[] results = mCache.get(key);
+		if (results != null) {
+			Log.d(TAG, "Hit: " + mCache);
+			return results;
+		}
+		long start = LatencyRecorder.now();
+		results = mCache.getFromArea(mUrl, params);
+		if (results != null) {
+			LatencyRecorder.getInstance().record("identify.area", start);
+			mCache.put(key, results);
+			Log.d(TAG, "Area hit: " + mCache);
+			return results;
+		}
+
+		if (mTask == null) {
+			mTask = new IdentifyTask(mUrl);
+		}
+		// the request and the parsing of its response, which the task does
+		// in one call
+		start = LatencyRecorder.now();
+		results = mTask.execute(params);
+		LatencyRecorder.getInstance().record("identify.network", start);
+		mCache.put(key, results);
+		Log.d(TAG, "Miss: " + mCache);
+		return results;
+	}
+
+}
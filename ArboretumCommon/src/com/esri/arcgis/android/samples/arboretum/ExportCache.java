@@ -0,0 +1,286 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Disk cache for images exported by dynamic map services. Entries are stored
+ * one per file and evicted least recently used first once their total size
+ * exceeds a byte budget. The recency order survives restarts through the file
+ * modification times.
+ * 
+ * Only the index of entries is guarded by the cache's lock. Images are read
+ * and written outside it, so concurrent image requests do not wait on each
+ * other's disk I/O; an image is written to a temporary file and renamed into
+ * place, so a reader never sees part of it. The directory is scanned on the
+ * first get or put, which the layers make from their worker threads, rather
+ * than when the cache is created.
+ * 
+ */
+public class ExportCache {
+
+	private static final String TAG = "ExportCache";
+
+	private static final String DIRECTORY = "exports";
+	private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+	private static ExportCache sInstance;
+
+	private final File mDirectory;
+	private final long mMaxBytes;
+	// file name to size in bytes, least recently used first
+	private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<String, Long>(
+			64, 0.75f, true);
+	private long mBytes = 0;
+	private boolean mLoaded = false;
+
+	private int mHits = 0;
+	private int mMisses = 0;
+
+	/**
+	 * Returns the cache shared by every map in the application, kept in the
+	 * application's cache directory.
+	 */
+	public static synchronized ExportCache getInstance(Context context) {
+		if (sInstance == null) {
+			sInstance = new ExportCache(new File(context
+					.getApplicationContext().getCacheDir(), DIRECTORY),
+					DEFAULT_MAX_BYTES);
+		}
+		return sInstance;
+	}
+
+	/**
+	 * @param directory
+	 *            directory the images are written to
+	 * @param maxBytes
+	 *            total size of the images kept
+	 */
+	public ExportCache(File directory, long maxBytes) {
+		mDirectory = directory;
+		mMaxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the image stored for the key, or null if there is none.
+	 */
+	public byte[] get(String key) {
+		String name = nameFor(key);
+		synchronized (this) {
+			load();
+			// also moves the entry to the most recently used end
+			if (mEntries.get(name) == null) {
+				mMisses++;
+				return null;
+			}
+		}
+		// an entry evicted meanwhile can still be read on POSIX file
+		// systems; if it is gone, this is a miss
+		File file = new File(mDirectory, name);
+		byte[] image = read(file);
+		synchronized (this) {
+			// the entry is left alone: a put may have stored the key again
+			// meanwhile, and an entry whose file is gone is replaced by the
+			// next put or evicted
+			if (image == null) {
+				mMisses++;
+				return null;
+			}
+			mHits++;
+		}
+		file.setLastModified(System.currentTimeMillis());
+		return image;
+	}
+
+	/**
+	 * Stores the image for the key, evicting the least recently used images
+	 * if the budget is exceeded. Images larger than the whole budget are not
+	 * stored.
+	 */
+	public void put(String key, byte[] image) {
+		if (image == null || image.length > mMaxBytes) {
+			return;
+		}
+		String name = nameFor(key);
+		synchronized (this) {
+			load();
+		}
+		File temp = write(image);
+		if (temp == null) {
+			return;
+		}
+		synchronized (this) {
+			// the rename replaces a previous image for the key
+			if (!temp.renameTo(new File(mDirectory, name))) {
+				Log.w(TAG, "Unable to store " + name);
+				temp.delete();
+				return;
+			}
+			Long previous = mEntries.put(name, Long.valueOf(image.length));
+			if (previous != null) {
+				mBytes -= previous.longValue();
+			}
+			mBytes += image.length;
+			trim();
+		}
+	}
+
+	public synchronized long size() {
+		return mBytes;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "hits=" + mHits + ", misses=" + mMisses + ", entries="
+				+ mEntries.size() + ", bytes=" + mBytes + "/" + mMaxBytes;
+	}
+
+	/*
+	 * Reads the entries left by earlier runs, once. Called with the lock held.
+	 */
+	private void load() {
+		if (mLoaded) {
+			return;
+		}
+		mLoaded = true;
+		if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+			Log.w(TAG, "Unable to create " + mDirectory);
+		}
+		File[] files = mDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
+		// oldest first, so the access order matches the last use
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				long ta = a.lastModified();
+				long tb = b.lastModified();
+				return ta < tb ? -1 : (ta == tb ? 0 : 1);
+			}
+		});
+		for (File file : files) {
+			if (file.getName().endsWith(".tmp")) {
+				file.delete();
+				continue;
+			}
+			mEntries.put(file.getName(), Long.valueOf(file.length()));
+			mBytes += file.length();
+		}
+		trim();
+	}
+
+	private void trim() {
+		Iterator<Map.Entry<String, Long>> it = mEntries.entrySet().iterator();
+		while (mBytes > mMaxBytes && it.hasNext()) {
+			Map.Entry<String, Long> eldest = it.next();
+			new File(mDirectory, eldest.getKey()).delete();
+			mBytes -= eldest.getValue().longValue();
+			it.remove();
+		}
+	}
+
+	private static String nameFor(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(
+					key.getBytes("UTF-8"));
+			StringBuilder name = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				name.append(Character.forDigit((b >> 4) & 0xf, 16));
+				name.append(Character.forDigit(b & 0xf, 16));
+			}
+			return name.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static byte[] read(File file) {
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			byte[] image = new byte[(int) file.length()];
+			int offset = 0;
+			while (offset < image.length) {
+				int count = in.read(image, offset, image.length - offset);
+				if (count < 0) {
+					return null;
+				}
+				offset += count;
+			}
+			return image;
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read " + file, e);
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	/*
+	 * Writes the image to a new temporary file, named uniquely so concurrent
+	 * writers of the same key do not collide, and returns it, or null if it
+	 * could not be written.
+	 */
+	private File write(byte[] image) {
+		File temp = null;
+		OutputStream out = null;
+		try {
+			temp = File.createTempFile("export", ".tmp", mDirectory);
+			out = new FileOutputStream(temp);
+			out.write(image);
+			out.close();
+			out = null;
+			return temp;
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to write to " + mDirectory, e);
+		} finally {
+			close(out);
+		}
+		if (temp != null) {
+			temp.delete();
+		}
+		return null;
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// nothing useful to do
+			}
+		}
+	}
+
+}
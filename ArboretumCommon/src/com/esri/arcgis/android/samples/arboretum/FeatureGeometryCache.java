@@ -0,0 +1,243 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.util.Log;
+
+import com.esri.core.geometry.Geometry;
+import com.esri.core.geometry.MultiVertexGeometry;
+import com.esri.core.geometry.SpatialReference;
+import com.esri.core.map.Feature;
+import com.esri.core.map.FeatureResult;
+import com.esri.core.tasks.identify.IdentifyResult;
+import com.esri.core.tasks.query.QueryParameters;
+import com.esri.core.tasks.query.QueryTask;
+
+/**
+ * Geometry of individual features, downloaded on demand and kept in an LRU
+ * cache shared by the whole process.
+ *
+ * An identify can then be run without geometry, which keeps the response
+ * small for layers of large polygons, and the geometry of just the features
+ * that are drawn is queried by object id afterwards. Geometry already cached
+ * is not downloaded again. The least recently used geometries are evicted
+ * once the cached vertices exceed a budget.
+ *
+ */
+public class FeatureGeometryCache {
+
+	private static final String TAG = "FeatureGeometryCache";
+
+	private static final int DEFAULT_MAX_VERTICES = 200000;
+
+	// Object id fields as named in identify results, which use the aliases.
+	private static final String[] OBJECT_ID_FIELDS = { "OBJECTID", "FID" };
+
+	private static FeatureGeometryCache sInstance;
+
+	private final int mMaxVertices;
+	private final LinkedHashMap<String, Geometry> mGeometries = new LinkedHashMap<String, Geometry>(
+			64, 0.75f, true);
+	private int mVertices = 0;
+
+	private int mHits = 0;
+	private int mMisses = 0;
+
+	public static synchronized FeatureGeometryCache getInstance() {
+		if (sInstance == null) {
+			sInstance = new FeatureGeometryCache(DEFAULT_MAX_VERTICES);
+		}
+		return sInstance;
+	}
+
+	/**
+	 * @param maxVertices
+	 *            number of vertices kept over all geometries
+	 */
+	public FeatureGeometryCache(int maxVertices) {
+		mMaxVertices = maxVertices;
+	}
+
+	/**
+	 * Returns the object id of an identified feature, or -1 if the result has
+	 * no object id attribute.
+	 */
+	public static long objectIdOf(IdentifyResult result) {
+		String field = objectIdFieldOf(result);
+		return field != null ? parseId(result.getAttributes().get(field)) : -1;
+	}
+
+	/**
+	 * Returns the name of the object id attribute of an identified feature, or
+	 * null if the result has none.
+	 */
+	public static String objectIdFieldOf(IdentifyResult result) {
+		Map<String, Object> attributes = result.getAttributes();
+		if (attributes == null) {
+			return null;
+		}
+		for (String field : OBJECT_ID_FIELDS) {
+			for (String name : attributes.keySet()) {
+				if (field.equalsIgnoreCase(name)) {
+					return name;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the geometry of the features of the layer with the given object
+	 * ids, from the cache where possible and otherwise with a single query.
+	 * Features the layer does not return are left out. Must not be called on
+	 * the UI thread.
+	 *
+	 * @param layerUrl
+	 *            the URL of the layer, ending in its id
+	 * @param objectIdField
+	 *            the layer's object id field, see
+	 *            {@link #objectIdFieldOf(IdentifyResult)}
+	 * @param objectIds
+	 *            the features wanted
+	 * @param outSR
+	 *            the spatial reference the geometry is returned in
+	 * @return the geometry of each feature by object id
+	 */
+	public Map<Long, Geometry> fetch(String layerUrl, String objectIdField,
+			long[] objectIds, SpatialReference outSR) throws Exception {
+		Map<Long, Geometry> geometries = new HashMap<Long, Geometry>();
+		List<Long> missing = new ArrayList<Long>();
+		synchronized (this) {
+			for (long id : objectIds) {
+				Geometry geometry = mGeometries.get(keyFor(layerUrl, outSR,
+						id));
+				if (geometry != null) {
+					geometries.put(id, geometry);
+				} else if (!missing.contains(id)) {
+					missing.add(id);
+				}
+			}
+			mHits += geometries.size();
+			mMisses += missing.size();
+		}
+		if (missing.isEmpty()) {
+			return geometries;
+		}
+
+		long[] ids = new long[missing.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = missing.get(i);
+		}
+		QueryParameters query = new QueryParameters();
+		query.setObjectIds(ids);
+		query.setReturnGeometry(true);
+		// the object id is the only attribute needed, to key the geometry
+		query.setOutFields(new String[] { objectIdField });
+		query.setOutSpatialReference(outSR);
+		FeatureResult result = new QueryTask(layerUrl).execute(query);
+
+		String idField = result.getObjectIdFieldName();
+		if (idField == null) {
+			idField = objectIdField;
+		}
+		Iterator<?> it = result.iterator();
+		synchronized (this) {
+			while (it.hasNext()) {
+				Object element = it.next();
+				if (!(element instanceof Feature)) {
+					continue;
+				}
+				Feature feature = (Feature) element;
+				long id = parseId(feature.getAttributeValue(idField));
+				if (id < 0) {
+					Log.w(TAG, "No " + idField + " in a feature of " + layerUrl);
+					continue;
+				}
+				Geometry geometry = feature.getGeometry();
+				if (geometry == null) {
+					continue;
+				}
+				geometries.put(id, geometry);
+				put(keyFor(layerUrl, outSR, id), geometry);
+			}
+		}
+		Log.d(TAG, "Fetched " + ids.length + ": " + this);
+		return geometries;
+	}
+
+	public synchronized void clear() {
+		mGeometries.clear();
+		mVertices = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "hits=" + mHits + ", misses=" + mMisses + ", geometries="
+				+ mGeometries.size() + ", vertices=" + mVertices + "/"
+				+ mMaxVertices;
+	}
+
+	private void put(String key, Geometry geometry) {
+		int vertices = vertexCount(geometry);
+		if (vertices > mMaxVertices) {
+			return;
+		}
+		Geometry previous = mGeometries.put(key, geometry);
+		if (previous != null) {
+			mVertices -= vertexCount(previous);
+		}
+		mVertices += vertices;
+		Iterator<Geometry> it = mGeometries.values().iterator();
+		while (mVertices > mMaxVertices && it.hasNext()) {
+			mVertices -= vertexCount(it.next());
+			it.remove();
+		}
+	}
+
+	private static String keyFor(String layerUrl, SpatialReference sr,
+			long objectId) {
+		return layerUrl + "|" + (sr == null ? 0 : sr.getID()) + "|"
+				+ objectId;
+	}
+
+	private static int vertexCount(Geometry geometry) {
+		if (geometry instanceof MultiVertexGeometry) {
+			return Math.max(((MultiVertexGeometry) geometry).getPointCount(),
+					1);
+		}
+		return 1;
+	}
+
+	private static long parseId(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value != null) {
+			try {
+				return Long.parseLong(value.toString().trim());
+			} catch (NumberFormatException e) {
+				// not an object id
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,59 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import com.esri.android.map.event.OnStatusChangedListener;
+
+/**
+ * Records the "layer.firstRender" latency of one layer: the time from the
+ * layer being initialized to its first image being loaded on the map. Other
+ * status changes are passed on to an optional listener, since a layer only
+ * holds one.
+ * 
+ */
+public class FirstRenderListener implements OnStatusChangedListener {
+
+	private static final long serialVersionUID = 1L;
+
+	private final OnStatusChangedListener mListener;
+	// when the layer was initialized, or 0 once its first render is recorded
+	private long mInitialized = 0;
+
+	public FirstRenderListener() {
+		this(null);
+	}
+
+	/**
+	 * @param listener
+	 *            also told of every status change, may be null
+	 */
+	public FirstRenderListener(OnStatusChangedListener listener) {
+		mListener = listener;
+	}
+
+	@Override
+	public void onStatusChanged(Object source, STATUS status) {
+		if (status == STATUS.INITIALIZED) {
+			mInitialized = LatencyRecorder.now();
+		} else if (status == STATUS.LAYER_LOADED && mInitialized > 0) {
+			LatencyRecorder.getInstance().record("layer.firstRender",
+					mInitialized);
+			mInitialized = 0;
+		}
+		if (mListener != null) {
+			mListener.onStatusChanged(source, status);
+		}
+	}
+
+}
@@ -0,0 +1,366 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.esri.core.geometry.Envelope;
+import com.esri.core.geometry.Geometry;
+import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.MultiVertexGeometry;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+import com.esri.core.tasks.identify.IdentifyParameters;
+import com.esri.core.tasks.identify.IdentifyResult;
+
+/**
+ * In-memory LRU cache of identify results, shared by the whole process.
+ * 
+ * Requests are keyed by service, layer ids, layer mode, tolerance, whether
+ * geometry is returned, map scale and the tap location snapped to a grid
+ * whose cells are as wide as the tolerance at that scale, so taps that the
+ * server would treat as the same spot share an entry. Entries expire after a
+ * time to live and the least recently used are evicted once the estimated
+ * size of the cached results exceeds a memory budget.
+ * 
+ * The cache also keeps the results of identifying every feature in a few
+ * areas, see {@link IdentifyPrefetcher}. A tap that misses is answered from
+ * an area that covers it at the same scale, by testing the distance of each
+ * feature from the tap locally.
+ * 
+ */
+public class IdentifyCache {
+
+	private static final long DEFAULT_TIME_TO_LIVE = 5 * 60 * 1000;
+	private static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+	private static final int MAX_AREAS = 16;
+	private static final long MAX_AREA_BYTES = 4 * 1024 * 1024;
+
+	// Steps of the scale key per unit of natural log of the resolution.
+	private static final double SCALE_STEPS = 1000.0;
+
+	// Rough heap cost of a result, an attribute and a vertex.
+	private static final int RESULT_BYTES = 200;
+	private static final int ATTRIBUTE_BYTES = 100;
+	private static final int VERTEX_BYTES = 16;
+
+	private static IdentifyCache sInstance;
+
+	private final long mTimeToLive;
+	private final long mMaxBytes;
+	private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<String, Entry>(
+			32, 0.75f, true);
+	private long mBytes = 0;
+	// most recently stored first
+	private final LinkedList<Area> mAreas = new LinkedList<Area>();
+	private long mAreaBytes = 0;
+
+	private int mHits = 0;
+	private int mMisses = 0;
+	private int mAreaHits = 0;
+
+	public static synchronized IdentifyCache getInstance() {
+		if (sInstance == null) {
+			sInstance = new IdentifyCache(DEFAULT_TIME_TO_LIVE,
+					DEFAULT_MAX_BYTES);
+		}
+		return sInstance;
+	}
+
+	/**
+	 * @param timeToLive
+	 *            age in milliseconds after which an entry is discarded
+	 * @param maxBytes
+	 *            estimated size of the results kept
+	 */
+	public IdentifyCache(long timeToLive, long maxBytes) {
+		mTimeToLive = timeToLive;
+		mMaxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the cache key of an identify request against the service, or
+	 * null if the parameters lack the geometry or map extent it needs.
+	 */
+	public String keyFor(String url, IdentifyParameters params) {
+		Geometry geometry = params.getGeometry();
+		Envelope extent = params.getMapExtent();
+		if (geometry == null || extent == null || params.getMapWidth() <= 0) {
+			return null;
+		}
+		Point tap;
+		if (geometry instanceof Point) {
+			tap = (Point) geometry;
+		} else {
+			Envelope envelope = new Envelope();
+			geometry.queryEnvelope(envelope);
+			tap = envelope.getCenter();
+		}
+
+		double resolution = extent.getWidth() / params.getMapWidth();
+		double cell = Math.max(params.getTolerance(), 1) * resolution;
+		int[] layers = params.getLayers();
+		StringBuilder key = new StringBuilder(url);
+		key.append('|').append(
+				layers == null ? "all" : Arrays.toString(layers));
+		key.append('|').append(params.getLayerMode());
+		key.append('|').append(params.getTolerance());
+		key.append('|').append(
+				params.getReturnGeometry() ? "geometry" : "attributes");
+		key.append('|').append(Math.round(Math.log(resolution) * SCALE_STEPS));
+		key.append('|').append((long) Math.floor(tap.getX() / cell));
+		key.append('|').append((long) Math.floor(tap.getY() / cell));
+		return key.toString();
+	}
+
+	/**
+	 * Returns the cached results for the key, or null if there is no entry or
+	 * it has expired.
+	 */
+	public synchronized IdentifyResult[] get(String key) {
+		Entry entry = key == null ? null : mEntries.get(key);
+		if (entry != null
+				&& System.currentTimeMillis() - entry.created > mTimeToLive) {
+			remove(key);
+			entry = null;
+		}
+		if (entry == null) {
+			mMisses++;
+			return null;
+		}
+		mHits++;
+		return entry.results.clone();
+	}
+
+	/**
+	 * Stores the results, evicting expired and then least recently used
+	 * entries to stay within the memory budget.
+	 */
+	public synchronized void put(String key, IdentifyResult[] results) {
+		if (key == null || results == null) {
+			return;
+		}
+		remove(key);
+		Entry entry = new Entry(System.currentTimeMillis(), results.clone());
+		if (entry.bytes > mMaxBytes) {
+			return;
+		}
+		mEntries.put(key, entry);
+		mBytes += entry.bytes;
+		trim(entry.created);
+	}
+
+	/**
+	 * Stores the results of identifying every feature of the layers within
+	 * the geometry of the parameters, which must be the map extent. The
+	 * results must include geometry.
+	 */
+	public synchronized void putArea(String url, IdentifyParameters params,
+			IdentifyResult[] results) {
+		String key = areaKeyFor(url, params);
+		if (key == null || results == null
+				|| !(params.getGeometry() instanceof Envelope)) {
+			return;
+		}
+		Envelope extent = (Envelope) params.getGeometry();
+		Area area = new Area(key, extent, params.getSpatialReference(),
+				System.currentTimeMillis(), results.clone());
+		if (area.bytes > MAX_AREA_BYTES) {
+			return;
+		}
+		mAreas.addFirst(area);
+		mAreaBytes += area.bytes;
+		while (mAreas.size() > MAX_AREAS || mAreaBytes > MAX_AREA_BYTES) {
+			mAreaBytes -= mAreas.removeLast().bytes;
+		}
+	}
+
+	/**
+	 * Returns true if a stored area covers the geometry of the parameters at
+	 * the same scale, so prefetching it again would download nothing new.
+	 */
+	public synchronized boolean hasArea(String url, IdentifyParameters params) {
+		String key = areaKeyFor(url, params);
+		if (key == null) {
+			return false;
+		}
+		Envelope envelope = new Envelope();
+		params.getGeometry().queryEnvelope(envelope);
+		return findArea(key, envelope) != null;
+	}
+
+	/**
+	 * Answers an identify at a tap from a stored area covering it, or returns
+	 * null if there is none. The results are the features of the area within
+	 * the tolerance of the tap.
+	 */
+	public IdentifyResult[] getFromArea(String url, IdentifyParameters params) {
+		String key = areaKeyFor(url, params);
+		if (key == null) {
+			return null;
+		}
+		Envelope tapEnvelope = new Envelope();
+		params.getGeometry().queryEnvelope(tapEnvelope);
+		Point tap = tapEnvelope.getCenter();
+		double radius = Math.max(params.getTolerance(), 1)
+				* params.getMapExtent().getWidth() / params.getMapWidth();
+		tapEnvelope.inflate(radius, radius);
+
+		Area area;
+		synchronized (this) {
+			area = findArea(key, tapEnvelope);
+			if (area == null) {
+				return null;
+			}
+			mAreaHits++;
+		}
+		List<IdentifyResult> hits = new ArrayList<IdentifyResult>();
+		for (IdentifyResult result : area.results) {
+			Geometry geometry = result.getGeometry();
+			if (geometry != null
+					&& GeometryEngine.distance(geometry, tap, area.sr) <= radius) {
+				hits.add(result);
+			}
+		}
+		return hits.toArray(new IdentifyResult[hits.size()]);
+	}
+
+	public synchronized void clear() {
+		mEntries.clear();
+		mBytes = 0;
+		mAreas.clear();
+		mAreaBytes = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "hits=" + mHits + ", misses=" + mMisses + ", areaHits="
+				+ mAreaHits + ", entries=" + mEntries.size() + ", areas="
+				+ mAreas.size() + ", bytes=" + mBytes + "/" + mMaxBytes
+				+ ", areaBytes=" + mAreaBytes + "/" + MAX_AREA_BYTES;
+	}
+
+	/*
+	 * Returns the key areas are matched by, or null if the parameters lack
+	 * what it needs. Layer mode and tolerance are left out; areas are
+	 * identified with every feature of the layers.
+	 */
+	private String areaKeyFor(String url, IdentifyParameters params) {
+		Envelope extent = params.getMapExtent();
+		SpatialReference sr = params.getSpatialReference();
+		if (params.getGeometry() == null || extent == null || sr == null
+				|| params.getMapWidth() <= 0) {
+			return null;
+		}
+		double resolution = extent.getWidth() / params.getMapWidth();
+		int[] layers = params.getLayers();
+		return url + "|" + (layers == null ? "all" : Arrays.toString(layers))
+				+ "|" + sr.getID() + "|"
+				+ Math.round(Math.log(resolution) * SCALE_STEPS);
+	}
+
+	private Area findArea(String key, Envelope envelope) {
+		long now = System.currentTimeMillis();
+		Iterator<Area> it = mAreas.iterator();
+		while (it.hasNext()) {
+			Area area = it.next();
+			if (now - area.created > mTimeToLive) {
+				mAreaBytes -= area.bytes;
+				it.remove();
+			} else if (area.key.equals(key)
+					&& area.extent.getXMin() <= envelope.getXMin()
+					&& area.extent.getYMin() <= envelope.getYMin()
+					&& area.extent.getXMax() >= envelope.getXMax()
+					&& area.extent.getYMax() >= envelope.getYMax()) {
+				return area;
+			}
+		}
+		return null;
+	}
+
+	private void trim(long now) {
+		Iterator<Map.Entry<String, Entry>> it = mEntries.entrySet().iterator();
+		while (it.hasNext()) {
+			Entry entry = it.next().getValue();
+			if (mBytes > mMaxBytes || now - entry.created > mTimeToLive) {
+				mBytes -= entry.bytes;
+				it.remove();
+			}
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = mEntries.remove(key);
+		if (entry != null) {
+			mBytes -= entry.bytes;
+		}
+	}
+
+	static long estimateBytes(IdentifyResult[] results) {
+		long bytes = 0;
+		for (IdentifyResult result : results) {
+			bytes += RESULT_BYTES;
+			Map<String, Object> attributes = result.getAttributes();
+			if (attributes != null) {
+				bytes += attributes.size() * ATTRIBUTE_BYTES;
+			}
+			Geometry geometry = result.getGeometry();
+			if (geometry instanceof MultiVertexGeometry) {
+				bytes += ((MultiVertexGeometry) geometry).getPointCount()
+						* VERTEX_BYTES;
+			} else if (geometry != null) {
+				bytes += VERTEX_BYTES;
+			}
+		}
+		return bytes;
+	}
+
+	private static class Area {
+		final String key;
+		final Envelope extent;
+		final SpatialReference sr;
+		final long created;
+		final IdentifyResult[] results;
+		final long bytes;
+
+		Area(String key, Envelope extent, SpatialReference sr, long created,
+				IdentifyResult[] results) {
+			this.key = key;
+			this.extent = extent;
+			this.sr = sr;
+			this.created = created;
+			this.results = results;
+			this.bytes = estimateBytes(results);
+		}
+	}
+
+	private static class Entry {
+		final long created;
+		final IdentifyResult[] results;
+		final long bytes;
+
+		Entry(long created, IdentifyResult[] results) {
+			this.created = created;
+			this.results = results;
+			this.bytes = estimateBytes(results);
+		}
+	}
+
+}
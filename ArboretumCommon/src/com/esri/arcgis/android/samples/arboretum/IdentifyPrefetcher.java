@@ -0,0 +1,369 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.util.Log;
+
+import com.esri.android.map.MapView;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler.CancellationToken;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler.Priority;
+import com.esri.core.geometry.Envelope;
+import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.SpatialReference;
+import com.esri.core.tasks.identify.IdentifyParameters;
+import com.esri.core.tasks.identify.IdentifyResult;
+
+/**
+ * Identifies every feature of some layers in the visible extent once the map
+ * has settled, and stores the results in an {@link IdentifyCache} area per
+ * layer, so the next tap is answered without the network.
+ *
+ * Call {@link #mapChanged(int[])} whenever the map is panned or zoomed or the
+ * layers change. The prefetch starts after the map has not moved for a while
+ * and the UI thread is idle, and runs as background work on the
+ * {@link TaskScheduler}. It is skipped when the area is already cached, when
+ * the battery is low and not charging, or once the data budget is spent.
+ *
+ * The identify is sent to the service's REST endpoint directly, so the bytes
+ * actually downloaded are charged to the budget as they are read, and the
+ * download stops once the budget is spent. A response the server cut short,
+ * or that the budget stopped, is not cached, and its extent is remembered: an
+ * extent of the same layer that contains it would be cut short too, so it is
+ * not requested.
+ *
+ * All methods must be called on the UI thread.
+ *
+ */
+public class IdentifyPrefetcher {
+
+	private static final String TAG = "IdentifyPrefetcher";
+
+	// time the map must stay still before a prefetch
+	private static final long SETTLE_DELAY = 1500;
+	private static final long DEFAULT_BUDGET = 4 * 1024 * 1024;
+	private static final float MIN_BATTERY = 0.3f;
+	private static final int DPI = 96;
+	// a response this long may have been cut short by the server
+	private static final int MAX_RESULTS = 1000;
+	// extents remembered as too full to prefetch
+	private static final int MAX_OVERFLOWS = 32;
+	// a stalled server must not hold a background worker for long
+	private static final int CONNECT_TIMEOUT = 10000;
+	private static final int READ_TIMEOUT = 15000;
+
+	private final MapView mMapView;
+	private final String mUrl;
+	private final IdentifyCache mCache;
+	private final Handler mHandler = new Handler();
+	private final long mBudget;
+	// bytes downloaded so far, added to by the workers
+	private final AtomicLong mSpent = new AtomicLong();
+	// extents whose identify was cut short, newest last
+	private final LinkedList<Overflow> mOverflows = new LinkedList<Overflow>();
+
+	private int[] mLayers;
+	private CancellationToken mCurrent;
+
+	private final Runnable mSettled = new Runnable() {
+		@Override
+		public void run() {
+			// wait for the UI thread to finish drawing the new extent
+			Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+				@Override
+				public boolean queueIdle() {
+					prefetch();
+					return false;
+				}
+			});
+		}
+	};
+
+	public IdentifyPrefetcher(MapView mapView, String url, IdentifyCache cache) {
+		this(mapView, url, cache, DEFAULT_BUDGET);
+	}
+
+	/**
+	 * @param mapView
+	 *            the map whose visible extent is prefetched
+	 * @param url
+	 *            the map service identified against
+	 * @param cache
+	 *            the cache that stores the results
+	 * @param budget
+	 *            bytes the prefetcher may download in all
+	 */
+	public IdentifyPrefetcher(MapView mapView, String url,
+			IdentifyCache cache, long budget) {
+		mMapView = mapView;
+		mUrl = url;
+		mCache = cache;
+		mBudget = budget;
+	}
+
+	/**
+	 * Restarts the wait for the map to settle, cancelling a prefetch of the
+	 * previous extent.
+	 *
+	 * @param layers
+	 *            the layers to prefetch, or null to stop prefetching
+	 */
+	public void mapChanged(int[] layers) {
+		cancel();
+		mLayers = layers;
+		if (layers != null) {
+			mHandler.postDelayed(mSettled, SETTLE_DELAY);
+		}
+	}
+
+	/**
+	 * Cancels a pending or running prefetch.
+	 */
+	public void cancel() {
+		mHandler.removeCallbacks(mSettled);
+		if (mCurrent != null) {
+			mCurrent.cancel();
+			mCurrent = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		int overflows;
+		synchronized (mOverflows) {
+			overflows = mOverflows.size();
+		}
+		return "spent=" + mSpent.get() + "/" + mBudget + ", overflows=" + overflows;
+	}
+
+	private void prefetch() {
+		if (mLayers == null || !mMapView.isLoaded()
+				|| mMapView.getWidth() <= 0) {
+			return;
+		}
+		if (mSpent.get() >= mBudget) {
+			Log.d(TAG, "Budget spent: " + this);
+			return;
+		}
+		if (!hasBattery()) {
+			Log.d(TAG, "Battery low, not prefetching");
+			return;
+		}
+
+		// one area per layer, so taps on any of the layers are answered
+		mCurrent = new CancellationToken();
+		for (int layer : mLayers) {
+			prefetch(layer);
+		}
+	}
+
+	private void prefetch(int layer) {
+		Envelope extent = new Envelope();
+		mMapView.getExtent().queryEnvelope(extent);
+		final IdentifyParameters params = new IdentifyParameters();
+		params.setGeometry(extent);
+		params.setMapExtent(extent);
+		params.setSpatialReference(mMapView.getSpatialReference());
+		params.setMapWidth(mMapView.getWidth());
+		params.setMapHeight(mMapView.getHeight());
+		params.setDPI(DPI);
+		params.setTolerance(0);
+		params.setLayers(new int[] { layer });
+		params.setLayerMode(IdentifyParameters.ALL_LAYERS);
+		params.setReturnGeometry(true);
+		if (mCache.hasArea(mUrl, params) || overflows(layer, extent)) {
+			return;
+		}
+
+		TaskScheduler.getInstance().submit(Priority.BACKGROUND, mCurrent,
+				new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						// another layer may have spent the budget meanwhile
+						if (mSpent.get() >= mBudget) {
+							return null;
+						}
+						List<IdentifyResult> results = new ArrayList<IdentifyResult>();
+						boolean complete = identify(params, results);
+						if (complete) {
+							mCache.putArea(mUrl, params, results
+									.toArray(new IdentifyResult[results.size()]));
+						} else {
+							overflowed(params.getLayers()[0],
+									params.getMapExtent());
+						}
+						Log.d(TAG, "Prefetched " + results.size()
+								+ " features" + (complete ? "" : ", cut short")
+								+ ": " + IdentifyPrefetcher.this);
+						return null;
+					}
+				}, null);
+	}
+
+	/*
+	 * Runs the identify against the REST endpoint, adding the results to out
+	 * and the bytes read to mSpent. Returns false if the server may have left
+	 * features out, or if the budget ran out before the response did.
+	 */
+	private boolean identify(IdentifyParameters params,
+			List<IdentifyResult> out) throws Exception {
+		Envelope extent = params.getMapExtent();
+		SpatialReference sr = params.getSpatialReference();
+		String url = mUrl
+				+ "/identify?f=json&geometryType=esriGeometryEnvelope"
+				+ "&geometry="
+				+ URLEncoder.encode(GeometryEngine.geometryToJson(sr, extent),
+						"UTF-8") + "&sr=" + sr.getID() + "&layers=all:"
+				+ params.getLayers()[0] + "&tolerance="
+				+ params.getTolerance() + "&mapExtent=" + extent.getXMin()
+				+ "," + extent.getYMin() + "," + extent.getXMax() + ","
+				+ extent.getYMax() + "&imageDisplay=" + params.getMapWidth()
+				+ "," + params.getMapHeight() + "," + params.getDPI()
+				+ "&returnGeometry=true";
+
+		HttpURLConnection connection = (HttpURLConnection) new URL(url)
+				.openConnection();
+		connection.setConnectTimeout(CONNECT_TIMEOUT);
+		connection.setReadTimeout(READ_TIMEOUT);
+		boolean exceeded;
+		try {
+			exceeded = IdentifyResponse.read(new BudgetInputStream(connection
+					.getInputStream()), out);
+		} catch (BudgetSpentException e) {
+			Log.d(TAG, "Budget spent during a prefetch: " + this);
+			return false;
+		} finally {
+			connection.disconnect();
+		}
+		return !exceeded && out.size() < MAX_RESULTS;
+	}
+
+	/*
+	 * Returns true if the extent contains one of the layer whose identify was
+	 * cut short.
+	 */
+	private boolean overflows(int layer, Envelope extent) {
+		synchronized (mOverflows) {
+			for (Overflow overflow : mOverflows) {
+				if (overflow.layer == layer
+						&& extent.contains(overflow.extent)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void overflowed(int layer, Envelope extent) {
+		synchronized (mOverflows) {
+			mOverflows.add(new Overflow(layer, extent));
+			if (mOverflows.size() > MAX_OVERFLOWS) {
+				mOverflows.removeFirst();
+			}
+		}
+	}
+
+	/*
+	 * Returns true if the device is charging or the battery is not low. The
+	 * battery state is a sticky broadcast, so no receiver is registered.
+	 */
+	private boolean hasBattery() {
+		Intent battery = mMapView.getContext().registerReceiver(null,
+				new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+		if (battery == null) {
+			return true;
+		}
+		if (battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0) {
+			return true;
+		}
+		int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+		int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+		return level < 0 || scale <= 0 || level >= MIN_BATTERY * scale;
+	}
+
+	private static class Overflow {
+		final int layer;
+		final Envelope extent;
+
+		Overflow(int layer, Envelope extent) {
+			this.layer = layer;
+			this.extent = extent;
+		}
+	}
+
+	/*
+	 * Charges the bytes read through it to mSpent, and throws
+	 * BudgetSpentException once the budget is spent.
+	 */
+	private class BudgetInputStream extends FilterInputStream {
+
+		BudgetInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				charge(1);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length)
+				throws IOException {
+			int n = super.read(buffer, offset, length);
+			if (n > 0) {
+				charge(n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			charge(skipped);
+			return skipped;
+		}
+
+		private void charge(long bytes) throws BudgetSpentException {
+			if (mSpent.addAndGet(bytes) >= mBudget) {
+				throw new BudgetSpentException();
+			}
+		}
+	}
+
+	private static class BudgetSpentException extends IOException {
+		private static final long serialVersionUID = 1L;
+	}
+
+}
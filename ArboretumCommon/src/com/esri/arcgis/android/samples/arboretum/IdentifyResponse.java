@@ -0,0 +1,79 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.List;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.esri.core.tasks.identify.IdentifyResult;
+
+/**
+ * Reads the JSON response of a map service identify operation with a
+ * streaming parser, one result at a time, so the body is never buffered as a
+ * whole.
+ *
+ */
+final class IdentifyResponse {
+
+	// Shared, thread-safe factory for the streaming response parsers.
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private IdentifyResponse() {
+	}
+
+	/**
+	 * Adds the results of the response to out and closes the stream. Returns
+	 * true if the server reported that it left results out.
+	 */
+	static boolean read(InputStream in, List<IdentifyResult> out)
+			throws Exception {
+		JsonParser parser = JSON_FACTORY.createJsonParser(in);
+		boolean exceeded = false;
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Unexpected identify response");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("results".equals(name) && value == JsonToken.START_ARRAY) {
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						// the task is interrupted when it is cancelled
+						if (Thread.currentThread().isInterrupted()) {
+							throw new InterruptedIOException(
+									"Identify cancelled");
+						}
+						out.add(IdentifyResult.fromJson(parser));
+					}
+				} else if ("exceededTransferLimit".equals(name)) {
+					exceeded = value == JsonToken.VALUE_TRUE;
+				} else if ("error".equals(name)) {
+					throw new IOException("Identify failed");
+				} else {
+					parser.skipChildren();
+				}
+			}
+			return exceeded;
+		} finally {
+			parser.close();
+		}
+	}
+
+}
@@ -0,0 +1,227 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler.Priority;
+
+/**
+ * Latency histograms per stage, such as the network time of an identify or
+ * the time to publish search results, shared by the whole process.
+ *
+ * Stages are named by the callers, for example "identify.network". Each
+ * histogram has buckets 5% apart, so percentiles are accurate to within 5%
+ * without keeping the samples. {@link #export(Context)} appends the count,
+ * p50, p95, p99 and maximum of every stage since the process started to a
+ * file in the app's files directory, labelled with the app version, so
+ * builds can be compared. The file is rolled over to a single old copy when
+ * it grows past MAX_FILE_BYTES.
+ *
+ */
+public class LatencyRecorder {
+
+	private static final String TAG = "LatencyRecorder";
+
+	public static final String FILE_NAME = "latency.txt";
+	public static final String OLD_FILE_NAME = "latency.old.txt";
+	private static final long MAX_FILE_BYTES = 64 * 1024;
+
+	// Ratio between the bounds of neighbouring buckets.
+	private static final double BUCKET_RATIO = 1.05;
+	// Buckets up to about fourteen minutes; anything longer goes in the last.
+	private static final int BUCKETS = 280;
+
+	private static final double[] PERCENTILES = { 0.50, 0.95, 0.99 };
+
+	private static LatencyRecorder sInstance;
+
+	private final Map<String, Histogram> mHistograms = new TreeMap<String, Histogram>();
+
+	public static synchronized LatencyRecorder getInstance() {
+		if (sInstance == null) {
+			sInstance = new LatencyRecorder();
+		}
+		return sInstance;
+	}
+
+	/**
+	 * Returns the time that {@link #record(String, long)} measures from.
+	 */
+	public static long now() {
+		return SystemClock.uptimeMillis();
+	}
+
+	/**
+	 * Records the time from start, a value of {@link #now()}, until now.
+	 */
+	public void record(String stage, long start) {
+		recordDuration(stage, now() - start);
+	}
+
+	/**
+	 * Records a duration in milliseconds.
+	 */
+	public synchronized void recordDuration(String stage, long millis) {
+		Histogram histogram = mHistograms.get(stage);
+		if (histogram == null) {
+			histogram = new Histogram();
+			mHistograms.put(stage, histogram);
+		}
+		histogram.add(Math.max(millis, 0));
+	}
+
+	/**
+	 * Returns the latency in milliseconds below which the fraction of the
+	 * samples of the stage lie, or -1 if there are none.
+	 */
+	public synchronized long percentile(String stage, double fraction) {
+		Histogram histogram = mHistograms.get(stage);
+		return histogram == null ? -1 : histogram.percentile(fraction);
+	}
+
+	/**
+	 * Appends the current statistics to the latency file as background work.
+	 * Call it when the activity pauses.
+	 */
+	public void export(Context context) {
+		final File dir = context.getFilesDir();
+		final String label = versionOf(context);
+		final String report = toString();
+		if (report.length() == 0) {
+			return;
+		}
+		TaskScheduler.getInstance().submit(Priority.BACKGROUND,
+				new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						write(dir, label, report);
+						return null;
+					}
+				}, new TaskScheduler.Callback<Void>() {
+					@Override
+					public void onResult(Void result) {
+					}
+
+					@Override
+					public void onError(Exception e) {
+						Log.w(TAG, "Unable to export latencies", e);
+					}
+				});
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Histogram> entry : mHistograms.entrySet()) {
+			Histogram histogram = entry.getValue();
+			sb.append(entry.getKey()).append(" count=")
+					.append(histogram.count);
+			for (double fraction : PERCENTILES) {
+				sb.append(" p").append(Math.round(fraction * 100)).append('=')
+						.append(histogram.percentile(fraction)).append("ms");
+			}
+			sb.append(" max=").append(histogram.max).append("ms\n");
+		}
+		return sb.toString();
+	}
+
+	private static void write(File dir, String label, String report)
+			throws IOException {
+		File file = new File(dir, FILE_NAME);
+		if (file.length() > MAX_FILE_BYTES) {
+			File old = new File(dir, OLD_FILE_NAME);
+			old.delete();
+			if (!file.renameTo(old)) {
+				throw new IOException("Unable to roll over " + file);
+			}
+		}
+		String time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US)
+				.format(new Date());
+		Writer writer = new FileWriter(file, true);
+		try {
+			writer.write("# " + time + " " + label + "\n");
+			writer.write(report);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String versionOf(Context context) {
+		try {
+			PackageInfo info = context.getPackageManager().getPackageInfo(
+					context.getPackageName(), 0);
+			return context.getPackageName() + " " + info.versionName + " ("
+					+ info.versionCode + ")";
+		} catch (PackageManager.NameNotFoundException e) {
+			return context.getPackageName();
+		}
+	}
+
+	private static class Histogram {
+		final int[] buckets = new int[BUCKETS];
+		int count = 0;
+		long max = 0;
+
+		void add(long millis) {
+			buckets[bucketOf(millis)]++;
+			count++;
+			max = Math.max(max, millis);
+		}
+
+		long percentile(double fraction) {
+			if (count == 0) {
+				return -1;
+			}
+			long rank = (long) Math.ceil(fraction * count);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += buckets[i];
+				if (seen >= rank) {
+					return Math.min(upperBound(i), max);
+				}
+			}
+			return max;
+		}
+
+		static int bucketOf(long millis) {
+			if (millis <= 1) {
+				return 0;
+			}
+			int bucket = (int) Math.ceil(Math.log(millis)
+					/ Math.log(BUCKET_RATIO));
+			return Math.min(bucket, BUCKETS - 1);
+		}
+
+		static long upperBound(int bucket) {
+			return (long) Math.ceil(Math.pow(BUCKET_RATIO, bucket));
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import com.esri.android.map.Layer;
+import com.esri.android.map.MapView;
+
+/**
+ * Creates arboretum layers lazily for one map. A layer object, and the service
+ * metadata request it makes, only exists once the layer is first asked for.
+ *
+ * All methods must be called on the UI thread.
+ * 
+ */
+public class LayerRegistry {
+
+	private final MapView mMapView;
+	private final ExportCache mCache;
+	private final Map<ArboretumLayer, Layer> mLayers = new EnumMap<ArboretumLayer, Layer>(
+			ArboretumLayer.class);
+	private final Set<ArboretumLayer> mAdded = EnumSet
+			.noneOf(ArboretumLayer.class);
+	private final Queue<ArboretumLayer> mPreload = new LinkedList<ArboretumLayer>();
+
+	public LayerRegistry(MapView mapView) {
+		mMapView = mapView;
+		mCache = ExportCache.getInstance(mapView.getContext());
+	}
+
+	/**
+	 * Returns the layer, creating it if needed. The layer is not added to the
+	 * map. Its first render is recorded by a {@link FirstRenderListener}.
+	 */
+	public Layer get(ArboretumLayer id) {
+		Layer layer = mLayers.get(id);
+		if (layer == null) {
+			layer = id.create(mCache);
+			layer.setOnStatusChangedListener(new FirstRenderListener());
+			mLayers.put(id, layer);
+		}
+		return layer;
+	}
+
+	/**
+	 * Returns true if the layer has been created.
+	 */
+	public boolean isCreated(ArboretumLayer id) {
+		return mLayers.containsKey(id);
+	}
+
+	/**
+	 * Shows the layer, creating it and adding it to the top of the map the
+	 * first time.
+	 */
+	public Layer enable(ArboretumLayer id) {
+		Layer layer = get(id);
+		if (mAdded.add(id)) {
+			mMapView.addLayer(layer);
+		} else {
+			layer.setVisible(true);
+		}
+		return layer;
+	}
+
+	/**
+	 * Hides the layer if it is on the map. A layer that was never enabled is
+	 * not created.
+	 */
+	public void disable(ArboretumLayer id) {
+		if (mAdded.contains(id)) {
+			mLayers.get(id).setVisible(false);
+		}
+	}
+
+	/**
+	 * Creates the layers once the UI thread has nothing else to do, one per
+	 * idle period, so their service metadata is ready when they are enabled
+	 * without delaying the first frame. The layers are not added to the map.
+	 */
+	public void preload(ArboretumLayer... ids) {
+		boolean idle = mPreload.isEmpty();
+		mPreload.addAll(Arrays.asList(ids));
+		if (!idle) {
+			return;
+		}
+		Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+			@Override
+			public boolean queueIdle() {
+				ArboretumLayer id = mPreload.poll();
+				if (id != null) {
+					get(id);
+				}
+				// stay registered while there is more to preload
+				return !mPreload.isEmpty();
+			}
+		});
+	}
+
+}
@@ -0,0 +1,245 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+/**
+ * Uniform grid over points in map coordinates, used to resolve a tap to the
+ * nearest point or to the points within a tolerance of it, without asking a
+ * graphics layer or a server to hit-test. Each point carries an id, such as
+ * a graphic id or an index into the caller's records.
+ *
+ * The index is immutable and is rebuilt whenever the set of points changes.
+ * The grid covers the extent of the points and is sized so that each cell
+ * holds about one point on average. Points are stored sorted by cell in flat
+ * arrays, so a query only touches the cells overlapping the search radius.
+ *
+ */
+public final class PointGridIndex {
+
+	public static final PointGridIndex EMPTY = new PointGridIndex(new int[0],
+			new double[0], new double[0]);
+
+	private final double mMinX;
+	private final double mMinY;
+	private final double mCellSize;
+	private final int mColumns;
+	private final int mRows;
+
+	// mCellStart[c] .. mCellStart[c + 1] is the range of points in cell c
+	private final int[] mCellStart;
+	private final int[] mIds;
+	private final double[] mX;
+	private final double[] mY;
+
+	/**
+	 * Builds an index over the given points. The three arrays are parallel and
+	 * are not modified.
+	 *
+	 * @param ids
+	 *            id of each point, returned by the queries
+	 * @param xs
+	 *            x coordinate of each point
+	 * @param ys
+	 *            y coordinate of each point
+	 */
+	public PointGridIndex(int[] ids, double[] xs, double[] ys) {
+		int count = ids.length;
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < count; i++) {
+			minX = Math.min(minX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxX = Math.max(maxX, xs[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+
+		if (count == 0) {
+			mMinX = 0;
+			mMinY = 0;
+			mCellSize = 1;
+			mColumns = 1;
+			mRows = 1;
+		} else {
+			double width = Math.max(maxX - minX, 0);
+			double height = Math.max(maxY - minY, 0);
+			// aim for roughly one point per cell
+			double cellSize = Math.sqrt(width * height / count);
+			if (!(cellSize > 0)) {
+				cellSize = Math.max(Math.max(width, height) / count, 1);
+			}
+			mMinX = minX;
+			mMinY = minY;
+			mCellSize = cellSize;
+			mColumns = (int) Math.min(Math.floor(width / cellSize) + 1, count);
+			mRows = (int) Math.min(Math.floor(height / cellSize) + 1, count);
+		}
+
+		// counting sort of the points by cell
+		mCellStart = new int[mColumns * mRows + 1];
+		int[] cells = new int[count];
+		for (int i = 0; i < count; i++) {
+			cells[i] = cellOf(xs[i], ys[i]);
+			mCellStart[cells[i] + 1]++;
+		}
+		for (int c = 0; c < mColumns * mRows; c++) {
+			mCellStart[c + 1] += mCellStart[c];
+		}
+		int[] next = new int[mColumns * mRows];
+		System.arraycopy(mCellStart, 0, next, 0, next.length);
+
+		mIds = new int[count];
+		mX = new double[count];
+		mY = new double[count];
+		for (int i = 0; i < count; i++) {
+			int slot = next[cells[i]]++;
+			mIds[slot] = ids[i];
+			mX[slot] = xs[i];
+			mY[slot] = ys[i];
+		}
+	}
+
+	/**
+	 * Builds an index over the given points, whose ids are their indexes in
+	 * the arrays.
+	 */
+	public PointGridIndex(double[] xs, double[] ys) {
+		this(indexes(xs.length), xs, ys);
+	}
+
+	public int size() {
+		return mIds.length;
+	}
+
+	/**
+	 * Returns the id of the point nearest to (x, y) within maxDistance, or -1
+	 * if there is none. Allocates nothing.
+	 */
+	public int nearest(double x, double y, double maxDistance) {
+		if (mIds.length == 0) {
+			return -1;
+		}
+		int col0 = clamp((int) Math.floor((x - maxDistance - mMinX) / mCellSize),
+				mColumns);
+		int col1 = clamp((int) Math.floor((x + maxDistance - mMinX) / mCellSize),
+				mColumns);
+		int row0 = clamp((int) Math.floor((y - maxDistance - mMinY) / mCellSize),
+				mRows);
+		int row1 = clamp((int) Math.floor((y + maxDistance - mMinY) / mCellSize),
+				mRows);
+
+		int best = -1;
+		double bestDistance = maxDistance * maxDistance;
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				int cell = row * mColumns + col;
+				for (int i = mCellStart[cell]; i < mCellStart[cell + 1]; i++) {
+					double dx = mX[i] - x;
+					double dy = mY[i] - y;
+					double distance = dx * dx + dy * dy;
+					if (distance <= bestDistance) {
+						bestDistance = distance;
+						best = mIds[i];
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the ids of the points within maxDistance of (x, y), nearest
+	 * first.
+	 */
+	public int[] within(double x, double y, double maxDistance) {
+		if (mIds.length == 0) {
+			return new int[0];
+		}
+		int col0 = clamp((int) Math.floor((x - maxDistance - mMinX) / mCellSize),
+				mColumns);
+		int col1 = clamp((int) Math.floor((x + maxDistance - mMinX) / mCellSize),
+				mColumns);
+		int row0 = clamp((int) Math.floor((y - maxDistance - mMinY) / mCellSize),
+				mRows);
+		int row1 = clamp((int) Math.floor((y + maxDistance - mMinY) / mCellSize),
+				mRows);
+
+		int found = 0;
+		int[] ids = new int[8];
+		double[] distances = new double[8];
+		double limit = maxDistance * maxDistance;
+		for (int row = row0; row <= row1; row++) {
+			for (int col = col0; col <= col1; col++) {
+				int cell = row * mColumns + col;
+				for (int i = mCellStart[cell]; i < mCellStart[cell + 1]; i++) {
+					double dx = mX[i] - x;
+					double dy = mY[i] - y;
+					double distance = dx * dx + dy * dy;
+					if (distance > limit) {
+						continue;
+					}
+					if (found == ids.length) {
+						ids = grow(ids);
+						distances = grow(distances);
+					}
+					// insertion sort, the hits are few
+					int slot = found++;
+					while (slot > 0 && distances[slot - 1] > distance) {
+						ids[slot] = ids[slot - 1];
+						distances[slot] = distances[slot - 1];
+						slot--;
+					}
+					ids[slot] = mIds[i];
+					distances[slot] = distance;
+				}
+			}
+		}
+		int[] result = new int[found];
+		System.arraycopy(ids, 0, result, 0, found);
+		return result;
+	}
+
+	private int cellOf(double x, double y) {
+		int col = clamp((int) Math.floor((x - mMinX) / mCellSize), mColumns);
+		int row = clamp((int) Math.floor((y - mMinY) / mCellSize), mRows);
+		return row * mColumns + col;
+	}
+
+	private static int clamp(int value, int size) {
+		return value < 0 ? 0 : (value >= size ? size - 1 : value);
+	}
+
+	private static int[] grow(int[] array) {
+		int[] grown = new int[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static double[] grow(double[] array) {
+		double[] grown = new double[array.length * 2];
+		System.arraycopy(array, 0, grown, 0, array.length);
+		return grown;
+	}
+
+	private static int[] indexes(int count) {
+		int[] indexes = new int[count];
+		for (int i = 0; i < count; i++) {
+			indexes[i] = i;
+		}
+		return indexes;
+	}
+
+}
@@ -0,0 +1,365 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * Bounded worker pool for the network work of the apps, shared by the whole
+ * process.
+ *
+ * Every task has a priority. Waiting tasks are started highest priority
+ * first and, within a priority, in the order they were submitted. At most
+ * MAX_BACKGROUND workers run background tasks at a time; further background
+ * tasks wait outside the pool, so a worker is always free for the task the
+ * user is waiting on.
+ *
+ * Results are delivered to a callback on the main thread, unless the task
+ * was cancelled first. The scheduler keeps per priority counts of the tasks
+ * waiting and of the time they waited, see {@link #toString()}.
+ *
+ */
+public class TaskScheduler {
+
+	public enum Priority {
+		/** Work the user is waiting on, such as an identify after a tap. */
+		INTERACTIVE,
+		/** Work the user asked for but is not watching. */
+		NORMAL,
+		/** Prefetch, sync and other bulk downloads. */
+		BACKGROUND
+	}
+
+	/**
+	 * Receives the outcome of a task on the main thread.
+	 */
+	public interface Callback<V> {
+		void onResult(V result);
+
+		void onError(Exception e);
+	}
+
+	/**
+	 * Cancels a group of tasks at once, such as everything started for one
+	 * tap. Tasks submitted with a token that is already cancelled are
+	 * cancelled at once.
+	 */
+	public static class CancellationToken {
+		private final List<Future<?>> mFutures = new ArrayList<Future<?>>();
+		private boolean mCancelled = false;
+
+		/**
+		 * Cancels the tasks of the token, interrupting those already running.
+		 */
+		public void cancel() {
+			List<Future<?>> futures;
+			synchronized (this) {
+				if (mCancelled) {
+					return;
+				}
+				mCancelled = true;
+				futures = new ArrayList<Future<?>>(mFutures);
+				mFutures.clear();
+			}
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
+		}
+
+		public synchronized boolean isCancelled() {
+			return mCancelled;
+		}
+
+		void add(Future<?> future) {
+			synchronized (this) {
+				if (!mCancelled) {
+					mFutures.add(future);
+					return;
+				}
+			}
+			future.cancel(true);
+		}
+
+		synchronized void remove(Future<?> future) {
+			mFutures.remove(future);
+		}
+	}
+
+	private static final int WORKERS = 4;
+	private static final int MAX_BACKGROUND = 2;
+
+	private static TaskScheduler sInstance;
+
+	private final ThreadPoolExecutor mExecutor;
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private final AtomicLong mSequence = new AtomicLong();
+	private final Stats[] mStats = new Stats[Priority.values().length];
+
+	// background tasks waiting for one of the MAX_BACKGROUND workers
+	private final LinkedList<Task<?>> mDeferred = new LinkedList<Task<?>>();
+	private int mBackgroundRunning = 0;
+
+	public static synchronized TaskScheduler getInstance() {
+		if (sInstance == null) {
+			sInstance = new TaskScheduler();
+		}
+		return sInstance;
+	}
+
+	private TaskScheduler() {
+		for (int i = 0; i < mStats.length; i++) {
+			mStats[i] = new Stats();
+		}
+		mExecutor = new ThreadPoolExecutor(WORKERS, WORKERS, 30,
+				TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					private final AtomicInteger mCount = new AtomicInteger();
+
+					@Override
+					public Thread newThread(final Runnable r) {
+						return new Thread(new Runnable() {
+							@Override
+							public void run() {
+								Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+								r.run();
+							}
+						}, "TaskScheduler #" + mCount.incrementAndGet());
+					}
+				});
+		mExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Submits a task. The callback, which may be null, is called on the main
+	 * thread unless the task is cancelled first.
+	 *
+	 * @param priority
+	 *            the priority class of the task
+	 * @param token
+	 *            cancels the task along with the others of the token; may be
+	 *            null
+	 * @param callable
+	 *            the work, run on a worker thread; it should give up when
+	 *            interrupted
+	 * @param callback
+	 *            receives the result or the failure
+	 * @return the future of the task, which can also cancel it
+	 */
+	public <V> Future<V> submit(Priority priority, CancellationToken token,
+			Callable<V> callable, Callback<V> callback) {
+		Task<V> task = new Task<V>(priority, token, callable, callback);
+		mStats[priority.ordinal()].queued.incrementAndGet();
+		if (token != null) {
+			token.add(task);
+		}
+		if (task.isCancelled()) {
+			return task;
+		}
+		if (priority == Priority.BACKGROUND) {
+			synchronized (mDeferred) {
+				if (mBackgroundRunning >= MAX_BACKGROUND) {
+					mDeferred.add(task);
+					return task;
+				}
+				mBackgroundRunning++;
+			}
+		}
+		mExecutor.execute(task);
+		return task;
+	}
+
+	public <V> Future<V> submit(Priority priority, Callable<V> callable,
+			Callback<V> callback) {
+		return submit(priority, null, callable, callback);
+	}
+
+	/**
+	 * Returns the number of tasks of the priority that are waiting to start.
+	 */
+	public int getQueueDepth(Priority priority) {
+		return mStats[priority.ordinal()].queued.get();
+	}
+
+	/**
+	 * Returns the mean time in milliseconds that the tasks of the priority
+	 * waited before they started.
+	 */
+	public long getMeanWait(Priority priority) {
+		Stats stats = mStats[priority.ordinal()];
+		long started = stats.started.get();
+		return started == 0 ? 0 : stats.waited.get() / started;
+	}
+
+	/**
+	 * Returns the longest time in milliseconds that a task of the priority
+	 * waited before it started.
+	 */
+	public long getMaxWait(Priority priority) {
+		return mStats[priority.ordinal()].maxWait.get();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Priority priority : Priority.values()) {
+			Stats stats = mStats[priority.ordinal()];
+			if (sb.length() > 0) {
+				sb.append("; ");
+			}
+			sb.append(priority.name().toLowerCase(Locale.US)).append(": queued=")
+					.append(stats.queued.get()).append(", started=")
+					.append(stats.started.get()).append(", meanWait=")
+					.append(getMeanWait(priority)).append("ms, maxWait=")
+					.append(stats.maxWait.get()).append("ms");
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Frees the background worker of a finished task for the next deferred
+	 * one.
+	 */
+	private void backgroundFinished() {
+		Task<?> next;
+		synchronized (mDeferred) {
+			next = mDeferred.poll();
+			if (next == null) {
+				mBackgroundRunning--;
+				return;
+			}
+		}
+		mExecutor.execute(next);
+	}
+
+	private static class Stats {
+		final AtomicInteger queued = new AtomicInteger();
+		final AtomicLong started = new AtomicLong();
+		final AtomicLong waited = new AtomicLong();
+		final AtomicLong maxWait = new AtomicLong();
+
+		void started(long wait) {
+			queued.decrementAndGet();
+			started.incrementAndGet();
+			waited.addAndGet(wait);
+			long max;
+			while (wait > (max = maxWait.get())
+					&& !maxWait.compareAndSet(max, wait)) {
+				// retry
+			}
+		}
+	}
+
+	private class Task<V> extends FutureTask<V> implements Comparable<Task<?>> {
+		final Priority priority;
+		final long sequence = mSequence.getAndIncrement();
+		final long submitted = System.currentTimeMillis();
+		final CancellationToken token;
+		final Callback<V> callback;
+		// set once the task leaves the queue, by starting or by cancellation
+		final AtomicBoolean dequeued = new AtomicBoolean();
+
+		Task(Priority priority, CancellationToken token, Callable<V> callable,
+				Callback<V> callback) {
+			super(callable);
+			this.priority = priority;
+			this.token = token;
+			this.callback = callback;
+		}
+
+		@Override
+		public int compareTo(Task<?> other) {
+			if (priority != other.priority) {
+				return priority.compareTo(other.priority);
+			}
+			return sequence < other.sequence ? -1
+					: (sequence == other.sequence ? 0 : 1);
+		}
+
+		@Override
+		public void run() {
+			if (dequeued.compareAndSet(false, true)) {
+				mStats[priority.ordinal()].started(System.currentTimeMillis()
+						- submitted);
+			}
+			try {
+				super.run();
+			} finally {
+				// a background task handed to the pool always gets here, even
+				// if cancelled, as only deferred ones are taken back
+				if (priority == Priority.BACKGROUND) {
+					backgroundFinished();
+				}
+			}
+		}
+
+		@Override
+		protected void done() {
+			if (token != null) {
+				token.remove(this);
+			}
+			if (isCancelled()) {
+				if (dequeued.compareAndSet(false, true)) {
+					mStats[priority.ordinal()].queued.decrementAndGet();
+				}
+				if (priority == Priority.BACKGROUND) {
+					synchronized (mDeferred) {
+						mDeferred.remove(this);
+					}
+				} else {
+					mExecutor.remove(this);
+				}
+				return;
+			}
+			if (callback == null) {
+				return;
+			}
+			mMainHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					if (isCancelled()) {
+						return;
+					}
+					try {
+						callback.onResult(get());
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						callback.onError(cause instanceof Exception ? (Exception) cause
+								: e);
+					} catch (InterruptedException e) {
+						callback.onError(e);
+					}
+				}
+			});
+		}
+	}
+
+}
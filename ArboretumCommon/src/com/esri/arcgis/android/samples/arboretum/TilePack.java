@@ -0,0 +1,189 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read-only, memory-mapped file of map tiles written by
+ * {@link TilePackSeeder}.
+ * 
+ * The file starts with the tiling scheme, followed by an index with an
+ * offset and a length for every tile and then the tile images themselves.
+ * Levels are numbered from 0; each halves the resolution of the one before
+ * and covers the packed extent with a grid of tiles whose top left corner is
+ * the tile origin. A level that was not seeded has an empty grid. All values
+ * are big-endian.
+ * 
+ * <pre>
+ * int    MAGIC, VERSION, wkid, dpi, tileWidth, tileHeight
+ * double originX, originY, xmin, ymin, xmax, ymax
+ * int    levelCount
+ * levelCount x { double resolution; int rows, cols }
+ * for each level, row and column: { long offset; int length }
+ * tile images
+ * </pre>
+ * 
+ * This class only uses java.nio, so the seeder can run it outside Android.
+ * 
+ */
+public final class TilePack {
+
+	static final int MAGIC = 0x4154504B; // "ATPK"
+	static final int VERSION = 1;
+
+	// Size in bytes of one index entry.
+	static final int INDEX_ENTRY = 12;
+
+	private final MappedByteBuffer mBuffer;
+	private final int mWkid;
+	private final int mDpi;
+	private final int mTileWidth;
+	private final int mTileHeight;
+	private final double mOriginX;
+	private final double mOriginY;
+	private final double[] mExtent;
+	private final double[] mResolutions;
+	private final int[] mRows;
+	private final int[] mCols;
+	// position of the first index entry of each level
+	private final int[] mIndex;
+
+	private TilePack(MappedByteBuffer buffer) throws IOException {
+		mBuffer = buffer;
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException("Not a tile pack");
+		}
+		mWkid = buffer.getInt();
+		mDpi = buffer.getInt();
+		mTileWidth = buffer.getInt();
+		mTileHeight = buffer.getInt();
+		mOriginX = buffer.getDouble();
+		mOriginY = buffer.getDouble();
+		mExtent = new double[] { buffer.getDouble(), buffer.getDouble(),
+				buffer.getDouble(), buffer.getDouble() };
+		int levels = buffer.getInt();
+		mResolutions = new double[levels];
+		mRows = new int[levels];
+		mCols = new int[levels];
+		for (int i = 0; i < levels; i++) {
+			mResolutions[i] = buffer.getDouble();
+			mRows[i] = buffer.getInt();
+			mCols[i] = buffer.getInt();
+		}
+		mIndex = new int[levels];
+		int position = buffer.position();
+		for (int i = 0; i < levels; i++) {
+			mIndex[i] = position;
+			position += mRows[i] * mCols[i] * INDEX_ENTRY;
+		}
+		if (position > buffer.limit()) {
+			throw new IOException("Truncated tile pack");
+		}
+	}
+
+	/**
+	 * Maps the file into memory. The mapping stays valid after the file is
+	 * closed.
+	 */
+	public static TilePack open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			return new TilePack(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Returns a copy of the tile image, or null if the tile is outside the
+	 * pack or was not seeded. Safe to call from several threads.
+	 */
+	public byte[] getTile(int level, int row, int col) {
+		if (level < 0 || level >= mIndex.length || row < 0
+				|| row >= mRows[level] || col < 0 || col >= mCols[level]) {
+			return null;
+		}
+		int entry = mIndex[level] + (row * mCols[level] + col) * INDEX_ENTRY;
+		// absolute reads leave the shared buffer's position alone
+		long offset = mBuffer.getLong(entry);
+		int length = mBuffer.getInt(entry + 8);
+		if (length <= 0) {
+			return null;
+		}
+		ByteBuffer tile = mBuffer.duplicate();
+		tile.position((int) offset);
+		byte[] image = new byte[length];
+		tile.get(image);
+		return image;
+	}
+
+	public int getWkid() {
+		return mWkid;
+	}
+
+	public int getDpi() {
+		return mDpi;
+	}
+
+	public int getTileWidth() {
+		return mTileWidth;
+	}
+
+	public int getTileHeight() {
+		return mTileHeight;
+	}
+
+	public double getOriginX() {
+		return mOriginX;
+	}
+
+	public double getOriginY() {
+		return mOriginY;
+	}
+
+	/**
+	 * Returns the packed extent as xmin, ymin, xmax, ymax.
+	 */
+	public double[] getExtent() {
+		return mExtent.clone();
+	}
+
+	public int getLevelCount() {
+		return mResolutions.length;
+	}
+
+	/**
+	 * Returns the map units per pixel of every level.
+	 */
+	public double[] getResolutions() {
+		return mResolutions.clone();
+	}
+
+	public int getRows(int level) {
+		return mRows[level];
+	}
+
+	public int getCols(int level) {
+		return mCols[level];
+	}
+
+}
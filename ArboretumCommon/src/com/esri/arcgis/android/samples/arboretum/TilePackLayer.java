@@ -0,0 +1,67 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import com.esri.android.map.TiledServiceLayer;
+import com.esri.core.geometry.Envelope;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+
+/**
+ * A tiled layer drawn entirely from a {@link TilePack} on the device, with no
+ * network access.
+ * 
+ */
+public class TilePackLayer extends TiledServiceLayer {
+
+	private static final double METERS_PER_INCH = 0.0254;
+
+	private final TilePack mPack;
+
+	public TilePackLayer(TilePack pack) {
+		super(false);
+		mPack = pack;
+		initLayer();
+	}
+
+	@Override
+	protected void initLayer() {
+		SpatialReference sr = SpatialReference.create(mPack.getWkid());
+		double[] extent = mPack.getExtent();
+		Envelope envelope = new Envelope(extent[0], extent[1], extent[2],
+				extent[3]);
+
+		double[] resolutions = mPack.getResolutions();
+		double[] scales = new double[resolutions.length];
+		double metersPerUnit = sr.getUnit().getUnitToBaseFactor();
+		for (int i = 0; i < resolutions.length; i++) {
+			scales[i] = resolutions[i] * metersPerUnit * mPack.getDpi()
+					/ METERS_PER_INCH;
+		}
+
+		setDefaultSpatialReference(sr);
+		setFullExtent(envelope);
+		setInitialExtent(envelope);
+		setTileInfo(new TileInfo(new Point(mPack.getOriginX(),
+				mPack.getOriginY()), scales, resolutions, resolutions.length,
+				mPack.getDpi(), mPack.getTileWidth(), mPack.getTileHeight()));
+		super.initLayer();
+	}
+
+	@Override
+	protected byte[] getTile(int level, int col, int row) throws Exception {
+		return mPack.getTile(level, row, col);
+	}
+
+}
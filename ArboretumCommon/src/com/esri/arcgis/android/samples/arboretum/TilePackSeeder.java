@@ -0,0 +1,230 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Command line tool that renders every tile of an extent through a dynamic
+ * map service's export operation and writes them to a {@link TilePack}.
+ * 
+ * It only uses the Java runtime and compiles without the Android and ArcGIS
+ * libraries, so it runs headless on a desktop or build machine, against the
+ * arboretum server or a local stand-in:
+ * 
+ * <pre>
+ * java -cp bin/classes com.esri.arcgis.android.samples.arboretum.TilePackSeeder \
+ *     [-url SERVICE_URL] [-levels FIRST-LAST] [-extent XMIN,YMIN,XMAX,YMAX] \
+ *     [-wkid WKID] [-tile PIXELS] [-dpi DPI] OUTPUT_FILE
+ * </pre>
+ * 
+ * The defaults seed levels 0-5 of the UWBG service over the arboretum extent
+ * used by HelloWorld. Level 0 fits the whole extent in one tile.
+ * 
+ */
+public class TilePackSeeder {
+
+	// UWBG (MapServer) - All Layers and Tables, as in HelloWorld
+	static final double[] ARBORETUM_EXTENT = { 1277938.4660206884,
+			232251.79283960164, 1281150.8841365278, 237883.30388626456 };
+
+	private static final int TIMEOUT = 30000;
+
+	private String mUrl = "http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/UWBG/MapServer";
+	private double[] mExtent = ARBORETUM_EXTENT.clone();
+	private int mWkid = 2285;
+	private int mFirstLevel = 0;
+	private int mLastLevel = 5;
+	private int mTileSize = 256;
+	private int mDpi = 96;
+
+	public static void main(String[] args) {
+		TilePackSeeder seeder = new TilePackSeeder();
+		File output = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (!arg.startsWith("-")) {
+					output = new File(arg);
+				} else if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for "
+							+ arg);
+				} else if (arg.equals("-url")) {
+					seeder.mUrl = args[++i];
+				} else if (arg.equals("-levels")) {
+					String[] range = args[++i].split("-");
+					seeder.mFirstLevel = Integer.parseInt(range[0]);
+					seeder.mLastLevel = Integer
+							.parseInt(range[range.length - 1]);
+				} else if (arg.equals("-extent")) {
+					String[] values = args[++i].split(",");
+					for (int k = 0; k < 4; k++) {
+						seeder.mExtent[k] = Double.parseDouble(values[k]);
+					}
+				} else if (arg.equals("-wkid")) {
+					seeder.mWkid = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-tile")) {
+					seeder.mTileSize = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-dpi")) {
+					seeder.mDpi = Integer.parseInt(args[++i]);
+				} else {
+					throw new IllegalArgumentException("Unknown option " + arg);
+				}
+			}
+			if (output == null) {
+				throw new IllegalArgumentException("No output file");
+			}
+			if (seeder.mFirstLevel < 0
+					|| seeder.mLastLevel < seeder.mFirstLevel) {
+				throw new IllegalArgumentException("Bad level range");
+			}
+		} catch (RuntimeException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: TilePackSeeder [-url SERVICE_URL]"
+					+ " [-levels FIRST-LAST] [-extent XMIN,YMIN,XMAX,YMAX]"
+					+ " [-wkid WKID] [-tile PIXELS] [-dpi DPI] OUTPUT_FILE");
+			System.exit(2);
+			return;
+		}
+
+		try {
+			seeder.seed(output);
+		} catch (IOException e) {
+			System.err.println("Seeding failed: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Fetches every tile and writes the pack. The file is written under a
+	 * temporary name and only replaces the output once it is complete.
+	 */
+	void seed(File output) throws IOException {
+		int levels = mLastLevel + 1;
+		double width = mExtent[2] - mExtent[0];
+		double height = mExtent[3] - mExtent[1];
+		double base = Math.max(width, height) / mTileSize;
+
+		double[] resolutions = new double[levels];
+		int[] rows = new int[levels];
+		int[] cols = new int[levels];
+		int tiles = 0;
+		for (int level = 0; level < levels; level++) {
+			resolutions[level] = base / (1 << level);
+			if (level >= mFirstLevel) {
+				double span = resolutions[level] * mTileSize;
+				rows[level] = (int) Math.ceil(height / span);
+				cols[level] = (int) Math.ceil(width / span);
+				tiles += rows[level] * cols[level];
+			}
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(6 * 4 + 6 * 8 + 4 + levels
+				* 16);
+		header.putInt(TilePack.MAGIC).putInt(TilePack.VERSION).putInt(mWkid)
+				.putInt(mDpi).putInt(mTileSize).putInt(mTileSize);
+		// tiles are counted from the top left corner of the extent
+		header.putDouble(mExtent[0]).putDouble(mExtent[3]);
+		for (double value : mExtent) {
+			header.putDouble(value);
+		}
+		header.putInt(levels);
+		for (int level = 0; level < levels; level++) {
+			header.putDouble(resolutions[level]).putInt(rows[level])
+					.putInt(cols[level]);
+		}
+		ByteBuffer index = ByteBuffer.allocate(tiles * TilePack.INDEX_ENTRY);
+
+		File temp = new File(output.getPath() + ".tmp");
+		RandomAccessFile out = new RandomAccessFile(temp, "rw");
+		try {
+			out.setLength(0);
+			out.seek(header.capacity() + index.capacity());
+			int done = 0;
+			for (int level = mFirstLevel; level < levels; level++) {
+				double span = resolutions[level] * mTileSize;
+				for (int row = 0; row < rows[level]; row++) {
+					for (int col = 0; col < cols[level]; col++) {
+						double xmin = mExtent[0] + col * span;
+						double ymax = mExtent[3] - row * span;
+						byte[] image = fetch(xmin, ymax - span, xmin + span,
+								ymax);
+						index.putLong(out.getFilePointer()).putInt(
+								image.length);
+						out.write(image);
+						done++;
+					}
+				}
+				System.out.println("Level " + level + ": " + rows[level] + "x"
+						+ cols[level] + " tiles, " + done + "/" + tiles);
+			}
+			out.seek(0);
+			out.write(header.array());
+			out.write(index.array());
+		} finally {
+			out.close();
+		}
+		if (output.exists() && !output.delete() || !temp.renameTo(output)) {
+			throw new IOException("Unable to replace " + output);
+		}
+		System.out.println("Wrote " + output + " (" + output.length()
+				+ " bytes)");
+	}
+
+	private byte[] fetch(double xmin, double ymin, double xmax, double ymax)
+			throws IOException {
+		URL url = new URL(String.format(Locale.US, "%s/export?bbox=%f,%f,%f,%f"
+				+ "&bboxSR=%d&imageSR=%d&size=%d,%d&dpi=%d"
+				+ "&format=png&transparent=false&f=image", mUrl, xmin, ymin,
+				xmax, ymax, mWkid, mWkid, mTileSize, mTileSize, mDpi));
+		HttpURLConnection connection = (HttpURLConnection) url
+				.openConnection();
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+		try {
+			if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				throw new IOException(url + " returned "
+						+ connection.getResponseCode());
+			}
+			// ArcGIS Server reports export errors as JSON
+			String type = connection.getContentType();
+			if (type != null && (type.contains("json") || type.contains("text"))) {
+				throw new IOException(url + " returned " + type);
+			}
+			InputStream in = connection.getInputStream();
+			try {
+				ByteArrayOutputStream image = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				int count;
+				while ((count = in.read(buffer)) != -1) {
+					image.write(buffer, 0, count);
+				}
+				return image.toByteArray();
+			} finally {
+				in.close();
+			}
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+}
@@ -0,0 +1,185 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+/**
+ * Builds the on-device points of interest of Nearby, NearbyArboretum/assets/
+ * pois.tsv, from an OpenStreetMap export.
+ *
+ * The input is the JSON output of an Overpass API query such as:
+ *
+ * <pre>
+ * [out:json];
+ * nwr[amenity~"^(cafe|bar|pub)$"][name](47.58,-122.36,47.69,-122.22);
+ * out center;
+ * </pre>
+ *
+ * Cafes become the category coffee, bars and pubs the category bar. Nodes
+ * use their own location and ways and relations their center. OpenStreetMap
+ * has no ratings, so the rating column is left empty. Run it with:
+ *
+ * <pre>
+ * mvn -q compile exec:java -Dexec.mainClass=com.esri.arcgis.android.samples.tools.PoiDatasetGenerator \
+ *     -Dexec.args="overpass.json ../NearbyArboretum/assets/pois.tsv"
+ * </pre>
+ *
+ */
+public class PoiDatasetGenerator {
+
+	static final String HEADER = "# On-device points of interest for local search, one per line, tab separated:\n"
+			+ "# category\ttitle\trating\tlatitude\tlongitude\n"
+			+ "# When this file holds no points, searches are sent to YQL instead.\n"
+			+ "# Generated from OpenStreetMap data, (c) OpenStreetMap contributors, ODbL.\n";
+
+	private static final Map<String, String> CATEGORIES = new HashMap<String, String>();
+	static {
+		CATEGORIES.put("cafe", "coffee");
+		CATEGORIES.put("bar", "bar");
+		CATEGORIES.put("pub", "bar");
+	}
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: PoiDatasetGenerator <overpass.json> <pois.tsv>");
+			System.exit(2);
+		}
+		InputStream in = new FileInputStream(new File(args[0]));
+		Writer out = new OutputStreamWriter(new FileOutputStream(args[1]),
+				"UTF-8");
+		try {
+			int count = generate(in, out);
+			System.out.println("Wrote " + count + " points to " + args[1]);
+		} finally {
+			out.close();
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the header and one line per usable element of the Overpass
+	 * response, and returns the number of lines written. Elements without a
+	 * name, a location or a known amenity are skipped.
+	 */
+	public static int generate(InputStream overpass, Writer out)
+			throws IOException {
+		out.write(HEADER);
+		JsonParser parser = JSON_FACTORY.createJsonParser(overpass);
+		try {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Not an Overpass JSON response");
+			}
+			int count = 0;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if (!"elements".equals(name) || value != JsonToken.START_ARRAY) {
+					parser.skipChildren();
+					continue;
+				}
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					if (writeElement(parser, out)) {
+						count++;
+					}
+				}
+			}
+			return count;
+		} finally {
+			parser.close();
+		}
+	}
+
+	/*
+	 * Reads one element, the parser being positioned on its START_OBJECT
+	 * token, and writes its line if it is usable.
+	 */
+	private static boolean writeElement(JsonParser parser, Writer out)
+			throws IOException {
+		double[] location = { Double.NaN, Double.NaN };
+		String title = null;
+		String amenity = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("lat".equals(name)) {
+				location[0] = parser.getDoubleValue();
+			} else if ("lon".equals(name)) {
+				location[1] = parser.getDoubleValue();
+			} else if ("center".equals(name) && value == JsonToken.START_OBJECT) {
+				readLocation(parser, location);
+			} else if ("tags".equals(name) && value == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String tag = parser.getCurrentName();
+					parser.nextToken();
+					if ("name".equals(tag)) {
+						title = parser.getText();
+					} else if ("amenity".equals(tag)) {
+						amenity = parser.getText();
+					} else {
+						parser.skipChildren();
+					}
+				}
+			} else {
+				parser.skipChildren();
+			}
+		}
+
+		String category = amenity == null ? null : CATEGORIES.get(amenity
+				.toLowerCase(Locale.US));
+		if (category == null || title == null || Double.isNaN(location[0])
+				|| Double.isNaN(location[1])) {
+			return false;
+		}
+		// tabs and line breaks would break the columns
+		title = title.replaceAll("[\\t\\r\\n]+", " ").trim();
+		if (title.length() == 0) {
+			return false;
+		}
+		out.write(category + "\t" + title + "\t\t" + location[0] + "\t"
+				+ location[1] + "\n");
+		return true;
+	}
+
+	private static void readLocation(JsonParser parser, double[] location)
+			throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			parser.nextToken();
+			if ("lat".equals(name)) {
+				location[0] = parser.getDoubleValue();
+			} else if ("lon".equals(name)) {
+				location[1] = parser.getDoubleValue();
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,351 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the arboretum ArcGIS Server and the YQL endpoint, which
+ * replays recorded responses so tests and benchmarks get the same numbers on
+ * every run without touching uwbgmaps.cfr.washington.edu.
+ *
+ * Each path, such as /UWBG/MapServer/identify, answers with a fixed response
+ * or one built from the query string, whatever the query is. Every response
+ * waits for the configured latency before its headers are sent, like a
+ * round trip to a remote server, and the payload is whatever the test
+ * registers, so its size can be varied. It listens on the loopback address
+ * only. Run it on its own to replay a directory of recorded responses:
+ *
+ * <pre>
+ * mvn -q compile exec:java -Dexec.mainClass=com.esri.arcgis.android.samples.tools.ReplayServer \
+ *     -Dexec.args="-port 8080 -latency 150 recorded"
+ * </pre>
+ *
+ * A file recorded/UWBG/MapServer/identify.json is then served at
+ * http://localhost:8080/UWBG/MapServer/identify. The extension only sets the
+ * content type.
+ *
+ */
+public class ReplayServer {
+
+	private static final Map<String, String> CONTENT_TYPES = new HashMap<String, String>();
+	static {
+		CONTENT_TYPES.put("json", "application/json;charset=UTF-8");
+		CONTENT_TYPES.put("png", "image/png");
+		CONTENT_TYPES.put("jpg", "image/jpeg");
+		CONTENT_TYPES.put("txt", "text/plain;charset=UTF-8");
+	}
+
+	/** A response to replay. */
+	public static final class Response {
+		final int status;
+		final String contentType;
+		final byte[] body;
+
+		public Response(int status, String contentType, byte[] body) {
+			this.status = status;
+			this.contentType = contentType;
+			this.body = body;
+		}
+
+		public static Response json(String json) {
+			return new Response(200, CONTENT_TYPES.get("json"),
+					json.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	/** Builds the response to a request. Called on the server's threads. */
+	public interface Responder {
+		/**
+		 * @param query
+		 *            the decoded query parameters; a repeated parameter
+		 *            keeps its last value
+		 */
+		Response respond(Map<String, String> query) throws IOException;
+	}
+
+	static {
+		// sends small responses at once rather than waiting for the
+		// client's delayed acknowledgement, which adds about 40ms
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private final HttpServer mServer;
+	private final ExecutorService mExecutor;
+	private final Map<String, Responder> mResponders = new ConcurrentHashMap<String, Responder>();
+	private final Map<String, List<String>> mRequests = new HashMap<String, List<String>>();
+	private volatile long mLatency = 0;
+
+	/**
+	 * Creates a server on a free port.
+	 */
+	public ReplayServer() throws IOException {
+		this(0);
+	}
+
+	public ReplayServer(int port) throws IOException {
+		mServer = HttpServer.create(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), port), 0);
+		// a thread per request, so the latency of one request does not
+		// hold up the others
+		mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "ReplayServer");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		mServer.setExecutor(mExecutor);
+		mServer.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					serve(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Answers every request for the path with the response.
+	 */
+	public void replay(String path, final Response response) {
+		replay(path, new Responder() {
+			@Override
+			public Response respond(Map<String, String> query) {
+				return response;
+			}
+		});
+	}
+
+	/**
+	 * Answers every request for the path with a response built from its
+	 * query.
+	 */
+	public void replay(String path, Responder responder) {
+		mResponders.put(path, responder);
+	}
+
+	/**
+	 * Replays every file under the directory at its path relative to the
+	 * directory, without the extension.
+	 */
+	public void replay(File directory) throws IOException {
+		replay(directory, "");
+	}
+
+	private void replay(File directory, String prefix) throws IOException {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			throw new IOException("Unable to list " + directory);
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory()) {
+				replay(file, prefix + "/" + name);
+				continue;
+			}
+			String type = null;
+			int dot = name.lastIndexOf('.');
+			if (dot > 0) {
+				type = CONTENT_TYPES.get(name.substring(dot + 1));
+				name = name.substring(0, dot);
+			}
+			replay(prefix + "/" + name, new Response(200,
+					type == null ? "application/octet-stream" : type,
+					readFully(file)));
+		}
+	}
+
+	/**
+	 * Sets how long every response waits before it is sent.
+	 */
+	public void setLatency(long millis) {
+		mLatency = millis;
+	}
+
+	public void start() {
+		mServer.start();
+	}
+
+	public void stop() {
+		mServer.stop(0);
+		mExecutor.shutdownNow();
+	}
+
+	/**
+	 * Returns the URL of the path on this server.
+	 */
+	public String getUrl(String path) {
+		return "http://127.0.0.1:" + mServer.getAddress().getPort() + path;
+	}
+
+	/**
+	 * Returns the raw query strings of the requests for the path so far, in
+	 * the order they arrived.
+	 */
+	public List<String> getRequests(String path) {
+		synchronized (mRequests) {
+			List<String> requests = mRequests.get(path);
+			return requests == null ? new ArrayList<String>()
+					: new ArrayList<String>(requests);
+		}
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		String query = exchange.getRequestURI().getRawQuery();
+		synchronized (mRequests) {
+			List<String> requests = mRequests.get(path);
+			if (requests == null) {
+				requests = new ArrayList<String>();
+				mRequests.put(path, requests);
+			}
+			requests.add(query == null ? "" : query);
+		}
+
+		long latency = mLatency;
+		if (latency > 0) {
+			try {
+				TimeUnit.MILLISECONDS.sleep(latency);
+			} catch (InterruptedException e) {
+				// the server is stopping
+				return;
+			}
+		}
+
+		Responder responder = mResponders.get(path);
+		Response response;
+		try {
+			response = responder == null ? new Response(404,
+					CONTENT_TYPES.get("txt"), ("No response recorded for "
+							+ path).getBytes(StandardCharsets.UTF_8))
+					: responder.respond(parseQuery(query));
+		} catch (RuntimeException e) {
+			response = new Response(500, CONTENT_TYPES.get("txt"), String
+					.valueOf(e).getBytes(StandardCharsets.UTF_8));
+		}
+
+		exchange.getResponseHeaders().set("Content-Type", response.contentType);
+		exchange.sendResponseHeaders(response.status,
+				response.body.length == 0 ? -1 : response.body.length);
+		if (response.body.length > 0) {
+			OutputStream out = exchange.getResponseBody();
+			out.write(response.body);
+			out.close();
+		}
+	}
+
+	private static Map<String, String> parseQuery(String rawQuery)
+			throws IOException {
+		Map<String, String> values = new HashMap<String, String>();
+		if (rawQuery != null) {
+			for (String pair : rawQuery.split("&")) {
+				int equals = pair.indexOf('=');
+				if (equals < 0) {
+					values.put(URLDecoder.decode(pair, "UTF-8"), "");
+				} else {
+					values.put(URLDecoder.decode(pair.substring(0, equals),
+							"UTF-8"), URLDecoder.decode(pair
+							.substring(equals + 1), "UTF-8"));
+				}
+			}
+		}
+		return values;
+	}
+
+	private static byte[] readFully(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			byte[] data = new byte[(int) file.length()];
+			int read = 0;
+			while (read < data.length) {
+				int count = in.read(data, read, data.length - read);
+				if (count < 0) {
+					throw new IOException("Unexpected end of " + file);
+				}
+				read += count;
+			}
+			return data;
+		} finally {
+			in.close();
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int port = 8080;
+		long latency = 0;
+		File directory = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (!arg.startsWith("-")) {
+					directory = new File(arg);
+				} else if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for "
+							+ arg);
+				} else if (arg.equals("-port")) {
+					port = Integer.parseInt(args[++i]);
+				} else if (arg.equals("-latency")) {
+					latency = Long.parseLong(args[++i]);
+				} else {
+					throw new IllegalArgumentException("Unknown option " + arg);
+				}
+			}
+			if (directory == null || !directory.isDirectory()) {
+				throw new IllegalArgumentException("No directory of responses");
+			}
+		} catch (RuntimeException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: ReplayServer [-port PORT]"
+					+ " [-latency MILLIS] DIRECTORY");
+			System.exit(2);
+			return;
+		}
+
+		ReplayServer server = new ReplayServer(port);
+		server.replay(directory);
+		server.setLatency(latency);
+		server.start();
+		System.out.println("Replaying " + directory + " at "
+				+ server.getUrl("/"));
+	}
+
+}
@@ -0,0 +1,32 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package android.content;
+
+import java.io.File;
+
+import android.content.pm.PackageManager;
+
+/**
+ * Plain JVM stand-in for the part of the Android class of the same name that
+ * the shared code uses.
+ */
+public abstract class Context {
+
+	public abstract File getFilesDir();
+
+	public abstract String getPackageName();
+
+	public abstract PackageManager getPackageManager();
+
+}
@@ -0,0 +1,24 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package android.content.pm;
+
+/**
+ * Plain JVM stand-in for the Android class of the same name.
+ */
+public class PackageInfo {
+
+	public String versionName;
+	public int versionCode;
+
+}
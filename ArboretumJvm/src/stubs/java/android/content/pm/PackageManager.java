@@ -0,0 +1,35 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package android.content.pm;
+
+/**
+ * Plain JVM stand-in for the part of the Android class of the same name that
+ * the shared code uses.
+ */
+public abstract class PackageManager {
+
+	public static class NameNotFoundException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		public NameNotFoundException(String name) {
+			super(name);
+		}
+
+	}
+
+	public abstract PackageInfo getPackageInfo(String packageName, int flags)
+			throws NameNotFoundException;
+
+}
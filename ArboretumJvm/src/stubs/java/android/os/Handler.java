@@ -0,0 +1,30 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package android.os;
+
+/**
+ * Plain JVM stand-in for the Android class of the same name. There is no UI
+ * thread, so posted work runs at once on the posting thread.
+ */
+public class Handler {
+
+	public Handler(Looper looper) {
+	}
+
+	public final boolean post(Runnable r) {
+		r.run();
+		return true;
+	}
+
+}
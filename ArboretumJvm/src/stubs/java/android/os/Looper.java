@@ -0,0 +1,31 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package android.os;
+
+/**
+ * Plain JVM stand-in for the Android class of the same name. There is no
+ * message loop; see {@link Handler}.
+ */
+public final class Looper {
+
+	private static final Looper MAIN = new Looper();
+
+	private Looper() {
+	}
+
+	public static Looper getMainLooper() {
+		return MAIN;
+	}
+
+}
@@ -0,0 +1,27 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package android.os;
+
+/**
+ * Plain JVM stand-in for the Android class of the same name. Thread
+ * priorities are left to the JVM.
+ */
+public class Process {
+
+	public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+	public static final void setThreadPriority(int priority) {
+	}
+
+}
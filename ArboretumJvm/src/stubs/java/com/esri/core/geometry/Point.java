@@ -0,0 +1,38 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.core.geometry;
+
+/**
+ * Plain JVM stand-in for the part of the ArcGIS runtime class of the same
+ * name that the app code under test uses.
+ */
+public class Point {
+
+	private double mX;
+	private double mY;
+
+	public Point(double x, double y) {
+		mX = x;
+		mY = y;
+	}
+
+	public double getX() {
+		return mX;
+	}
+
+	public double getY() {
+		return mY;
+	}
+
+}
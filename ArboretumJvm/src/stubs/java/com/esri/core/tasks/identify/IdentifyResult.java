@@ -0,0 +1,113 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.core.tasks.identify;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.esri.core.geometry.Point;
+
+/**
+ * Plain JVM stand-in for the ArcGIS runtime class of the same name. It reads
+ * the fields of an identify result the way the runtime does, one token at a
+ * time, but only keeps point geometries.
+ */
+public class IdentifyResult {
+
+	private int mLayerId = -1;
+	private String mLayerName;
+	private String mDisplayFieldName;
+	private Object mValue;
+	private final Map<String, Object> mAttributes = new HashMap<String, Object>();
+	private Point mGeometry;
+
+	/**
+	 * Reads a result, the parser being positioned on its START_OBJECT token.
+	 */
+	public static IdentifyResult fromJson(JsonParser parser) throws Exception {
+		IdentifyResult result = new IdentifyResult();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("layerId".equals(name)) {
+				result.mLayerId = parser.getIntValue();
+			} else if ("layerName".equals(name)) {
+				result.mLayerName = parser.getText();
+			} else if ("displayFieldName".equals(name)) {
+				result.mDisplayFieldName = parser.getText();
+			} else if ("value".equals(name)) {
+				result.mValue = parser.getText();
+			} else if ("attributes".equals(name)
+					&& value == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String key = parser.getCurrentName();
+					if (parser.nextToken().isScalarValue()) {
+						result.mAttributes.put(key, parser.getText());
+					} else {
+						parser.skipChildren();
+					}
+				}
+			} else if ("geometry".equals(name)
+					&& value == JsonToken.START_OBJECT) {
+				double x = Double.NaN;
+				double y = Double.NaN;
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String key = parser.getCurrentName();
+					JsonToken coordinate = parser.nextToken();
+					if ("x".equals(key) && coordinate.isNumeric()) {
+						x = parser.getDoubleValue();
+					} else if ("y".equals(key) && coordinate.isNumeric()) {
+						y = parser.getDoubleValue();
+					} else {
+						parser.skipChildren();
+					}
+				}
+				if (!Double.isNaN(x) && !Double.isNaN(y)) {
+					result.mGeometry = new Point(x, y);
+				}
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return result;
+	}
+
+	public int getLayerId() {
+		return mLayerId;
+	}
+
+	public String getLayerName() {
+		return mLayerName;
+	}
+
+	public String getDisplayFieldName() {
+		return mDisplayFieldName;
+	}
+
+	public Object getValue() {
+		return mValue;
+	}
+
+	public Map<String, Object> getAttributes() {
+		return mAttributes;
+	}
+
+	public Point getGeometry() {
+		return mGeometry;
+	}
+
+}
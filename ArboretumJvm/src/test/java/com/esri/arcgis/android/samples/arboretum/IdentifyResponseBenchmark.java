@@ -0,0 +1,67 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esri.arcgis.android.samples.tools.Payloads;
+import com.esri.core.tasks.identify.IdentifyResult;
+
+/**
+ * Streaming parse of an identify response as the prefetcher reads it. On
+ * the plain JVM, IdentifyResult is the stand-in in src/stubs, so this
+ * measures the token stream and field reads rather than the ArcGIS
+ * runtime's own result objects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdentifyResponseBenchmark {
+
+	@Param({ "10", "100", "1000" })
+	int results;
+
+	private byte[] mResponse;
+
+	@Setup
+	public void setUp() throws Exception {
+		mResponse = Payloads.identify(results).getBytes("UTF-8");
+	}
+
+	@Benchmark
+	public List<IdentifyResult> read() throws Exception {
+		List<IdentifyResult> out = new ArrayList<IdentifyResult>(results);
+		IdentifyResponse.read(new ByteArrayInputStream(mResponse), out);
+		return out;
+	}
+
+}
@@ -0,0 +1,119 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hit-testing a tap against plants clustered in beds over the arboretum
+ * extent, in state plane feet. linearScan is the baseline: every point is
+ * tested against the tap, as a graphics layer's hit test does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointGridIndexBenchmark {
+
+	private static final int QUERIES = 1024;
+	private static final double XMIN = 1277938.4660206884;
+	private static final double YMIN = 232251.79283960164;
+	private static final double WIDTH = 1281150.8841365278 - XMIN;
+	private static final double HEIGHT = 237883.30388626456 - YMIN;
+
+	@Param({ "1000", "10000", "100000" })
+	int size;
+
+	// about a finger's width at the zoom levels identify is used at
+	@Param({ "15" })
+	double tolerance;
+
+	private PointGridIndex mIndex;
+	private double[] mPointXs;
+	private double[] mPointYs;
+	private final double[] mXs = new double[QUERIES];
+	private final double[] mYs = new double[QUERIES];
+	private int mNext;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(size);
+		double[] xs = new double[size];
+		double[] ys = new double[size];
+		for (int i = 0; i < size; i++) {
+			double bedX = XMIN + random.nextInt(60) * WIDTH / 60;
+			double bedY = YMIN + random.nextInt(100) * HEIGHT / 100;
+			xs[i] = bedX + random.nextGaussian() * 20;
+			ys[i] = bedY + random.nextGaussian() * 20;
+		}
+		mIndex = new PointGridIndex(xs, ys);
+		mPointXs = xs;
+		mPointYs = ys;
+		for (int i = 0; i < QUERIES; i++) {
+			int near = random.nextInt(size);
+			mXs[i] = xs[near] + random.nextGaussian() * 10;
+			mYs[i] = ys[near] + random.nextGaussian() * 10;
+		}
+	}
+
+	@Benchmark
+	public int nearest() {
+		int q = mNext++ & (QUERIES - 1);
+		return mIndex.nearest(mXs[q], mYs[q], tolerance);
+	}
+
+	@Benchmark
+	public int[] within() {
+		int q = mNext++ & (QUERIES - 1);
+		return mIndex.within(mXs[q], mYs[q], tolerance);
+	}
+
+	@Benchmark
+	public int[] linearScan() {
+		int q = mNext++ & (QUERIES - 1);
+		double x = mXs[q];
+		double y = mYs[q];
+		double squared = tolerance * tolerance;
+		int[] found = new int[8];
+		int count = 0;
+		for (int i = 0; i < mPointXs.length; i++) {
+			double dx = mPointXs[i] - x;
+			double dy = mPointYs[i] - y;
+			if (dx * dx + dy * dy <= squared) {
+				if (count == found.length) {
+					found = Arrays.copyOf(found, count * 2);
+				}
+				found[count++] = i;
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+
+}
@@ -0,0 +1,96 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PointGridIndexTest {
+
+	@Test
+	public void queriesMatchBruteForce() {
+		Random random = new Random(1);
+		int count = 3000;
+		double[] xs = new double[count];
+		double[] ys = new double[count];
+		int[] ids = new int[count];
+		for (int i = 0; i < count; i++) {
+			// clustered, like plants in beds
+			double cx = random.nextInt(10) * 100;
+			double cy = random.nextInt(10) * 100;
+			xs[i] = cx + random.nextGaussian() * 5;
+			ys[i] = cy + random.nextGaussian() * 5;
+			ids[i] = 1000 + i;
+		}
+		PointGridIndex index = new PointGridIndex(ids, xs, ys);
+		assertEquals(count, index.size());
+
+		for (int q = 0; q < 500; q++) {
+			double x = random.nextDouble() * 1000 - 50;
+			double y = random.nextDouble() * 1000 - 50;
+			double radius = random.nextDouble() * 20;
+
+			int nearest = -1;
+			double best = radius * radius;
+			int inside = 0;
+			for (int i = 0; i < count; i++) {
+				double d = (xs[i] - x) * (xs[i] - x) + (ys[i] - y) * (ys[i] - y);
+				if (d <= radius * radius) {
+					inside++;
+				}
+				if (d <= best) {
+					best = d;
+					nearest = ids[i];
+				}
+			}
+			assertEquals(nearest, index.nearest(x, y, radius));
+
+			int[] within = index.within(x, y, radius);
+			assertEquals(inside, within.length);
+			double previous = -1;
+			for (int id : within) {
+				int i = id - 1000;
+				double d = (xs[i] - x) * (xs[i] - x) + (ys[i] - y) * (ys[i] - y);
+				assertTrue(d >= previous);
+				previous = d;
+			}
+		}
+	}
+
+	@Test
+	public void idsDefaultToIndexes() {
+		PointGridIndex index = new PointGridIndex(new double[] { 0, 10, 20 },
+				new double[] { 0, 0, 0 });
+		assertArrayEquals(new int[] { 1, 0, 2 }, index.within(9, 0, 12));
+		assertEquals(2, index.nearest(19, 0, 5));
+	}
+
+	@Test
+	public void emptyAndDegenerate() {
+		assertEquals(-1, PointGridIndex.EMPTY.nearest(0, 0, 100));
+		assertEquals(0, PointGridIndex.EMPTY.within(0, 0, 100).length);
+
+		// every point at the same spot
+		PointGridIndex same = new PointGridIndex(new double[] { 5, 5, 5 },
+				new double[] { 5, 5, 5 });
+		assertEquals(3, same.within(5, 5, 0).length);
+		assertEquals(-1, same.nearest(50, 50, 1));
+	}
+
+}
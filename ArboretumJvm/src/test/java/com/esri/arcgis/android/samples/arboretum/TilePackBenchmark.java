@@ -0,0 +1,97 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esri.arcgis.android.samples.tools.ReplayServer;
+import com.esri.arcgis.android.samples.tools.ReplayServer.Response;
+
+/**
+ * Reading random tiles of a pack seeded from the replay server, levels 0-5
+ * of the arboretum extent as TilePackSeeder writes them by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TilePackBenchmark {
+
+	private static final int QUERIES = 1024;
+
+	// typical sizes of a 256 pixel PNG of the arboretum
+	@Param({ "4096", "32768" })
+	int tileBytes;
+
+	private File mFile;
+	private TilePack mPack;
+	private final int[] mLevels = new int[QUERIES];
+	private final int[] mRows = new int[QUERIES];
+	private final int[] mCols = new int[QUERIES];
+	private int mNext;
+
+	@Setup
+	public void setUp() throws IOException {
+		ReplayServer server = new ReplayServer();
+		server.replay("/UWBG/MapServer/export", new Response(200,
+				"image/png", new byte[tileBytes]));
+		server.start();
+		mFile = File.createTempFile("bench", ".pack");
+		try {
+			TilePackSeeder.main(new String[] { "-url",
+					server.getUrl("/UWBG/MapServer"), mFile.getPath() });
+		} finally {
+			server.stop();
+		}
+		mPack = TilePack.open(mFile);
+
+		Random random = new Random(tileBytes);
+		for (int i = 0; i < QUERIES; i++) {
+			int level = random.nextInt(mPack.getLevelCount());
+			mLevels[i] = level;
+			mRows[i] = random.nextInt(mPack.getRows(level));
+			mCols[i] = random.nextInt(mPack.getCols(level));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		mFile.delete();
+	}
+
+	@Benchmark
+	public byte[] getTile() {
+		int q = mNext++ & (QUERIES - 1);
+		return mPack.getTile(mLevels[q], mRows[q], mCols[q]);
+	}
+
+}
@@ -0,0 +1,116 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.arboretum;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.esri.arcgis.android.samples.tools.ReplayServer;
+import com.esri.arcgis.android.samples.tools.ReplayServer.Responder;
+import com.esri.arcgis.android.samples.tools.ReplayServer.Response;
+
+public class TilePackSeederTest {
+
+	private static final String SERVICE = "/arcgis/rest/services/UWBG/MapServer";
+
+	@Rule
+	public TemporaryFolder mFolder = new TemporaryFolder();
+
+	private ReplayServer mServer;
+
+	@Before
+	public void setUp() throws IOException {
+		mServer = new ReplayServer();
+		// each image holds the bounding box it was exported for
+		mServer.replay(SERVICE + "/export", new Responder() {
+			@Override
+			public Response respond(Map<String, String> query)
+					throws IOException {
+				return new Response(200, "image/png", query.get("bbox")
+						.getBytes("UTF-8"));
+			}
+		});
+		mServer.start();
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void seedsEveryTileOfTheExtent() throws IOException {
+		File file = mFolder.newFile("uwbg.pack");
+		TilePackSeeder.main(new String[] { "-url",
+				mServer.getUrl(SERVICE), "-levels", "1-3", file.getPath() });
+
+		TilePack pack = TilePack.open(file);
+		double[] extent = TilePackSeeder.ARBORETUM_EXTENT;
+		assertEquals(2285, pack.getWkid());
+		assertEquals(4, pack.getLevelCount());
+		assertEquals(extent[0], pack.getOriginX(), 0);
+		assertEquals(extent[3], pack.getOriginY(), 0);
+		// level 0 was not seeded
+		assertEquals(0, pack.getRows(0));
+		assertNull(pack.getTile(0, 0, 0));
+
+		int tiles = 0;
+		for (int level = 1; level < 4; level++) {
+			double span = pack.getResolutions()[level] * pack.getTileWidth();
+			// the taller side of the extent fits in 2^level tiles
+			assertEquals(1 << level, pack.getRows(level));
+			for (int row = 0; row < pack.getRows(level); row++) {
+				for (int col = 0; col < pack.getCols(level); col++) {
+					String[] bbox = new String(pack.getTile(level, row, col),
+							"UTF-8").split(",");
+					assertEquals(extent[0] + col * span,
+							Double.parseDouble(bbox[0]), 1e-3);
+					assertEquals(extent[3] - row * span,
+							Double.parseDouble(bbox[3]), 1e-3);
+					tiles++;
+				}
+			}
+			assertNull(pack.getTile(level, pack.getRows(level), 0));
+			assertNull(pack.getTile(level, 0, pack.getCols(level)));
+		}
+		assertEquals(tiles, mServer.getRequests(SERVICE + "/export").size());
+	}
+
+	@Test
+	public void reseedingReplacesThePack() throws IOException {
+		File file = mFolder.newFile("uwbg.pack");
+		TilePackSeeder.main(new String[] { "-url",
+				mServer.getUrl(SERVICE), "-levels", "0-0", file.getPath() });
+		TilePackSeeder.main(new String[] { "-url",
+				mServer.getUrl(SERVICE), "-levels", "0-1", "-tile", "512",
+				file.getPath() });
+
+		TilePack pack = TilePack.open(file);
+		assertEquals(2, pack.getLevelCount());
+		assertEquals(512, pack.getTileWidth());
+		assertFalse(new File(file.getPath() + ".tmp").exists());
+	}
+
+}
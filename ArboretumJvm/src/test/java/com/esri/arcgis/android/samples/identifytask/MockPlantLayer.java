@@ -0,0 +1,246 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.identifytask;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.esri.arcgis.android.samples.tools.Payloads;
+import com.esri.arcgis.android.samples.tools.ReplayServer;
+import com.esri.arcgis.android.samples.tools.ReplayServer.Responder;
+import com.esri.arcgis.android.samples.tools.ReplayServer.Response;
+
+/**
+ * A plants layer answering the layer and query requests of {@link PlantSync}
+ * the way ArcGIS Server 10.2 does, on a {@link ReplayServer}. Plants can be
+ * added, edited and deleted between syncs; every change is one minute after
+ * the one before.
+ */
+final class MockPlantLayer {
+
+	static final String PATH = "/PublicFeatures/MapServer/3";
+	static final String EDIT_DATE_FIELD = "last_edited_date";
+
+	// 2014-01-01 00:00:00 UTC
+	private static final long FIRST_EDIT = 1388534400000L;
+	private static final long EDIT_STEP = 60 * 1000;
+
+	private static final Pattern EDITED_SINCE = Pattern.compile(EDIT_DATE_FIELD
+			+ " >= timestamp '([^']+)'");
+
+	private static final String ERROR = "{\"error\":{\"code\":400,"
+			+ "\"message\":\"Unable to complete operation.\",\"details\":[]}}";
+
+	private static final class Plant {
+		final double x;
+		final double y;
+		final String genus;
+		final long edited;
+
+		Plant(double x, double y, String genus, long edited) {
+			this.x = x;
+			this.y = y;
+			this.genus = genus;
+			this.edited = edited;
+		}
+	}
+
+	private final ReplayServer mServer;
+	private final TreeMap<Integer, Plant> mPlants = new TreeMap<Integer, Plant>();
+	private long mClock = FIRST_EDIT;
+	private boolean mEditDates = true;
+	private boolean mFailFeatures = false;
+
+	MockPlantLayer(ReplayServer server) {
+		mServer = server;
+		server.replay(PATH, new Responder() {
+			@Override
+			public Response respond(Map<String, String> query) {
+				return Response.json(layer());
+			}
+		});
+		server.replay(PATH + "/query", new Responder() {
+			@Override
+			public Response respond(Map<String, String> query)
+					throws IOException {
+				return Response.json(query(query));
+			}
+		});
+	}
+
+	String getUrl() {
+		return mServer.getUrl(PATH);
+	}
+
+	/**
+	 * Adds count plants with object ids from firstId, spread over the
+	 * arboretum.
+	 */
+	synchronized void populate(int firstId, int count) {
+		Random random = new Random(firstId);
+		for (int i = 0; i < count; i++) {
+			add(firstId + i, Payloads.XMIN + random.nextDouble()
+					* (Payloads.XMAX - Payloads.XMIN), Payloads.YMIN
+					+ random.nextDouble() * (Payloads.YMAX - Payloads.YMIN),
+					"Acer");
+		}
+	}
+
+	synchronized void add(int objectId, double x, double y, String genus) {
+		mPlants.put(Integer.valueOf(objectId), new Plant(x, y, genus,
+				mClock += EDIT_STEP));
+	}
+
+	synchronized void edit(int objectId, String genus) {
+		Plant plant = mPlants.get(Integer.valueOf(objectId));
+		mPlants.put(Integer.valueOf(objectId), new Plant(plant.x, plant.y,
+				genus, mClock += EDIT_STEP));
+	}
+
+	synchronized void delete(int objectId) {
+		mPlants.remove(Integer.valueOf(objectId));
+	}
+
+	/**
+	 * Returns the object id of the plant edited last.
+	 */
+	synchronized int lastEdited() {
+		int last = -1;
+		long newest = Long.MIN_VALUE;
+		for (Map.Entry<Integer, Plant> entry : mPlants.entrySet()) {
+			if (entry.getValue().edited > newest) {
+				newest = entry.getValue().edited;
+				last = entry.getKey().intValue();
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Stops the layer from reporting edit dates, as layers without editor
+	 * tracking do.
+	 */
+	synchronized void setEditDates(boolean editDates) {
+		mEditDates = editDates;
+	}
+
+	/**
+	 * Makes queries for features fail with an ArcGIS Server error.
+	 */
+	synchronized void setFailFeatures(boolean fail) {
+		mFailFeatures = fail;
+	}
+
+	private synchronized String layer() {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"currentVersion\":10.21,\"id\":3,\"name\":\"Plants\",")
+				.append("\"type\":\"Feature Layer\",\"geometryType\":\"esriGeometryPoint\",")
+				.append("\"displayField\":\"Genus\",\"fields\":[")
+				.append("{\"name\":\"OBJECTID\",\"type\":\"esriFieldTypeOID\",\"alias\":\"OBJECTID\"},")
+				.append("{\"name\":\"Genus\",\"type\":\"esriFieldTypeString\",\"alias\":\"Genus\",\"length\":50}");
+		if (mEditDates) {
+			json.append(",{\"name\":\"").append(EDIT_DATE_FIELD)
+					.append("\",\"type\":\"esriFieldTypeDate\",\"alias\":\"")
+					.append(EDIT_DATE_FIELD).append("\",\"length\":8}],")
+					.append("\"editFieldsInfo\":{\"creatorField\":\"created_user\",")
+					.append("\"creationDateField\":\"created_date\",")
+					.append("\"editorField\":\"last_edited_user\",")
+					.append("\"editDateField\":\"").append(EDIT_DATE_FIELD)
+					.append("\"},");
+		} else {
+			json.append("],");
+		}
+		json.append("\"maxRecordCount\":1000}");
+		return json.toString();
+	}
+
+	private synchronized String query(Map<String, String> query)
+			throws IOException {
+		if ("true".equals(query.get("returnIdsOnly"))) {
+			return objectIds(query.get("where"));
+		}
+		String objectIds = query.get("objectIds");
+		if (mFailFeatures || objectIds == null) {
+			return ERROR;
+		}
+
+		StringBuilder json = new StringBuilder();
+		json.append("{\"displayFieldName\":\"Genus\",")
+				.append("\"geometryType\":\"esriGeometryPoint\",")
+				.append("\"spatialReference\":{\"wkid\":2285,\"latestWkid\":2285},")
+				.append("\"features\":[");
+		boolean first = true;
+		for (String id : objectIds.split(",")) {
+			Plant plant = mPlants.get(Integer.valueOf(id));
+			if (plant == null) {
+				continue;
+			}
+			if (!first) {
+				json.append(',');
+			}
+			first = false;
+			json.append("{\"attributes\":{\"OBJECTID\":").append(id)
+					.append(",\"Genus\":\"").append(plant.genus).append('"');
+			if (mEditDates) {
+				json.append(",\"").append(EDIT_DATE_FIELD).append("\":")
+						.append(plant.edited);
+			}
+			json.append("},\"geometry\":{\"x\":").append(plant.x)
+					.append(",\"y\":").append(plant.y).append("}}");
+		}
+		json.append("]}");
+		return json.toString();
+	}
+
+	private String objectIds(String where) throws IOException {
+		long since = Long.MIN_VALUE;
+		if (!"1=1".equals(where)) {
+			Matcher matcher = where == null ? null : EDITED_SINCE
+					.matcher(where);
+			if (!mEditDates || matcher == null || !matcher.matches()) {
+				return ERROR;
+			}
+			SimpleDateFormat format = new SimpleDateFormat(
+					"yyyy-MM-dd HH:mm:ss", Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("UTC"));
+			try {
+				since = format.parse(matcher.group(1)).getTime();
+			} catch (ParseException e) {
+				throw new IOException(e);
+			}
+		}
+
+		StringBuilder ids = new StringBuilder();
+		for (Map.Entry<Integer, Plant> entry : mPlants.entrySet()) {
+			if (entry.getValue().edited >= since) {
+				if (ids.length() > 0) {
+					ids.append(',');
+				}
+				ids.append(entry.getKey());
+			}
+		}
+		// ArcGIS Server reports no ids as null
+		return "{\"objectIdFieldName\":\"OBJECTID\",\"objectIds\":"
+				+ (ids.length() == 0 ? "null" : "[" + ids + "]") + "}";
+	}
+
+}
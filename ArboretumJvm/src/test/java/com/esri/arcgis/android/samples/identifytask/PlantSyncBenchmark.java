@@ -0,0 +1,96 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.identifytask;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esri.arcgis.android.samples.tools.ReplayServer;
+import com.esri.core.geometry.Point;
+import com.esri.core.tasks.identify.IdentifyResult;
+
+/**
+ * Syncing the plants layer from the replay server, in full and when nothing
+ * changed, and identifying plants from the synced store. Set the server
+ * latency with -p latencyMillis=150 to see the effect of the parallel
+ * batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlantSyncBenchmark {
+
+	@Param({ "1000", "10000" })
+	int plants;
+
+	@Param({ "0" })
+	long latencyMillis;
+
+	private ReplayServer mServer;
+	private PlantSync mSync;
+	private PlantStore mStore;
+	private final Point mTap = new Point(1279500, 235000);
+
+	@Setup
+	public void setUp() throws IOException {
+		mServer = new ReplayServer();
+		MockPlantLayer layer = new MockPlantLayer(mServer);
+		layer.populate(1, plants);
+		// one plant under the tap, and more nearby as the density goes up
+		layer.add(plants + 1, mTap.getX(), mTap.getY(), "Quercus");
+		mServer.setLatency(latencyMillis);
+		mServer.start();
+		mSync = new PlantSync(layer.getUrl());
+		mStore = mSync.sync(null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Benchmark
+	public PlantStore fullSync() throws IOException {
+		return mSync.sync(null);
+	}
+
+	@Benchmark
+	public PlantStore unchangedSync() throws IOException {
+		return mSync.sync(mStore);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<IdentifyResult> identify() {
+		return mStore.identify(mTap, 40);
+	}
+
+}
@@ -0,0 +1,195 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.identifytask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esri.arcgis.android.samples.tools.ReplayServer;
+import com.esri.core.geometry.Point;
+import com.esri.core.tasks.identify.IdentifyResult;
+
+public class PlantSyncTest {
+
+	private ReplayServer mServer;
+	private MockPlantLayer mLayer;
+	private PlantSync mSync;
+
+	@Before
+	public void setUp() throws IOException {
+		mServer = new ReplayServer();
+		mLayer = new MockPlantLayer(mServer);
+		mServer.start();
+		mSync = new PlantSync(mLayer.getUrl());
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void firstSyncDownloadsEveryFeatureInBatches() throws IOException {
+		mLayer.populate(1, 1200);
+
+		PlantStore store = mSync.sync(null);
+
+		assertEquals(1200, store.size());
+		assertEquals(2285, store.wkid);
+		assertEquals(ids(1, 1200), sorted(store.objectIds()));
+		// the object ids, then three batches of at most 500
+		assertEquals(4, queries().size());
+		assertTrue(store.watermark > 0);
+	}
+
+	@Test
+	public void deltaSyncFetchesOnlyChangedFeatures() throws IOException {
+		mLayer.populate(1, 800);
+		mLayer.add(899, 1279000, 234000, "Quercus");
+		mLayer.add(900, 1280000, 236000, "Acer");
+		PlantStore first = mSync.sync(null);
+		// the newest feature was edited at the watermark, so it is fetched
+		// again; edit dates are compared to the second
+		int newest = mLayer.lastEdited();
+
+		mLayer.delete(5);
+		mLayer.delete(6);
+		mLayer.edit(899, "Magnolia");
+		mLayer.add(1001, 1280000, 235000, "Sorbus");
+		int before = queries().size();
+		PlantStore second = mSync.sync(first);
+
+		Set<Integer> expected = new HashSet<Integer>(ids(1, 800));
+		expected.addAll(Arrays.asList(899, 900, 1001));
+		expected.removeAll(Arrays.asList(5, 6));
+		assertEquals(new ArrayList<Integer>(new TreeSet<Integer>(expected)),
+				sorted(second.objectIds()));
+
+		// all ids, the edited ids, then a single batch of the changes
+		List<String> delta = queries().subList(before, queries().size());
+		assertEquals(3, delta.size());
+		Set<Integer> fetched = objectIdsOf(delta.get(2));
+		assertEquals(new HashSet<Integer>(Arrays.asList(899, 1001, newest)),
+				fetched);
+
+		List<IdentifyResult> results = second.identify(new Point(1279000,
+				234000), 0.5);
+		assertEquals(1, results.size());
+		assertEquals("Magnolia", results.get(0).getValue());
+		assertTrue(second.watermark > first.watermark);
+	}
+
+	@Test
+	public void layerWithoutEditDatesSyncsAddedAndDeleted() throws IOException {
+		mLayer.setEditDates(false);
+		mLayer.populate(1, 10);
+		PlantStore first = mSync.sync(null);
+		assertEquals(0, first.watermark);
+
+		mLayer.delete(3);
+		mLayer.add(11, 1279000, 234000, "Pinus");
+		PlantStore second = mSync.sync(first);
+
+		List<Integer> expected = ids(1, 11);
+		expected.remove(Integer.valueOf(3));
+		assertEquals(expected, sorted(second.objectIds()));
+	}
+
+	@Test
+	public void unchangedLayerOnlyQueriesIds() throws IOException {
+		mLayer.populate(1, 50);
+		PlantStore first = mSync.sync(null);
+		int newest = mLayer.lastEdited();
+		int before = queries().size();
+
+		PlantStore second = mSync.sync(first);
+
+		assertEquals(50, second.size());
+		List<String> delta = queries().subList(before, queries().size());
+		assertEquals(3, delta.size());
+		assertEquals(new HashSet<Integer>(Arrays.asList(newest)),
+				objectIdsOf(delta.get(2)));
+	}
+
+	@Test
+	public void failedBatchLeavesStoreAsItWas() throws IOException {
+		mLayer.populate(1, 20);
+		PlantStore first = mSync.sync(null);
+
+		mLayer.add(21, 1279000, 234000, "Malus");
+		mLayer.setFailFeatures(true);
+		try {
+			mSync.sync(first);
+			fail("Expected the failed query to fail the sync");
+		} catch (IOException expected) {
+		}
+
+		assertEquals(20, first.size());
+		mLayer.setFailFeatures(false);
+		PlantStore second = mSync.sync(first);
+		assertEquals(21, second.size());
+	}
+
+	private List<String> queries() {
+		return mServer.getRequests(MockPlantLayer.PATH + "/query");
+	}
+
+	private static Set<Integer> objectIdsOf(String rawQuery) throws IOException {
+		for (String pair : rawQuery.split("&")) {
+			if (pair.startsWith("objectIds=")) {
+				Set<Integer> ids = new HashSet<Integer>();
+				for (String id : URLDecoder.decode(
+						pair.substring("objectIds=".length()), "UTF-8")
+						.split(",")) {
+					ids.add(Integer.valueOf(id));
+				}
+				return ids;
+			}
+		}
+		throw new AssertionError("No object ids in " + rawQuery);
+	}
+
+	private static List<Integer> ids(int first, int last) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (int id = first; id <= last; id++) {
+			ids.add(Integer.valueOf(id));
+		}
+		return ids;
+	}
+
+	private static List<Integer> sorted(int[] values) {
+		int[] copy = values.clone();
+		Arrays.sort(copy);
+		List<Integer> list = new ArrayList<Integer>();
+		for (int value : copy) {
+			list.add(Integer.valueOf(value));
+		}
+		return list;
+	}
+
+}
@@ -0,0 +1,103 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Projecting search results to the map and taps back to latitude and
+ * longitude, per point. The copy of the input array is included.
+ *
+ * forward projects all the points in one call. forwardEach projects them one
+ * call at a time, and forwardEachNewProjection also sets up the projection
+ * for every point, as the search did when it created the spatial references
+ * for each result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LambertConformalConicBenchmark {
+
+	private static final int POINTS = 1000;
+
+	private final double[] mLonLat = new double[POINTS * 2];
+	private final double[] mXY = new double[POINTS * 2];
+	private final double[] mWork = new double[POINTS * 2];
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1);
+		for (int i = 0; i < POINTS; i++) {
+			mLonLat[2 * i] = -122.5 + random.nextDouble() * 0.4;
+			mLonLat[2 * i + 1] = 47.4 + random.nextDouble() * 0.5;
+		}
+		System.arraycopy(mLonLat, 0, mXY, 0, mXY.length);
+		LambertConformalConic.WASHINGTON_NORTH_FTUS.forward(mXY, 0, POINTS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public double[] forward() {
+		System.arraycopy(mLonLat, 0, mWork, 0, mWork.length);
+		LambertConformalConic.WASHINGTON_NORTH_FTUS.forward(mWork, 0, POINTS);
+		return mWork;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public double[] forwardEach() {
+		System.arraycopy(mLonLat, 0, mWork, 0, mWork.length);
+		for (int i = 0; i < POINTS; i++) {
+			LambertConformalConic.WASHINGTON_NORTH_FTUS.forward(mWork, 2 * i, 1);
+		}
+		return mWork;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public double[] forwardEachNewProjection() {
+		System.arraycopy(mLonLat, 0, mWork, 0, mWork.length);
+		for (int i = 0; i < POINTS; i++) {
+			new LambertConformalConic(48.0 + 44.0 / 60.0, 47.5, 47.0,
+					-(120.0 + 50.0 / 60.0), 500000.0, 0.0,
+					LambertConformalConic.US_FOOT).forward(mWork, 2 * i, 1);
+		}
+		return mWork;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public double[] inverse() {
+		System.arraycopy(mXY, 0, mWork, 0, mWork.length);
+		LambertConformalConic.WASHINGTON_NORTH_FTUS.inverse(mWork, 0, POINTS);
+		return mWork;
+	}
+
+}
@@ -0,0 +1,97 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocalSearchCacheTest {
+
+	private static final long HOUR = 60 * 60 * 1000;
+
+	private static final List<PointOfInterest> RESULTS = Arrays.asList(
+			new PointOfInterest("Cafe One", "4.5", 47.64, -122.295),
+			new PointOfInterest("The Pub", null, 47.66, -122.31));
+
+	@Rule
+	public TemporaryFolder mFolder = new TemporaryFolder();
+
+	@Test
+	public void readsEntriesWrittenByAnotherInstance() throws Exception {
+		File directory = mFolder.newFolder();
+		new LocalSearchCache(directory, 4, 8, 1, HOUR).put("coffee", RESULTS);
+
+		LocalSearchCache cache = new LocalSearchCache(directory, 4, 8, 1, HOUR);
+		List<PointOfInterest> found = cache.get("coffee");
+		assertEquals(2, found.size());
+		assertEquals("Cafe One", found.get(0).title);
+		assertNull(found.get(1).rating);
+		assertEquals(1, cache.getDiskHits());
+
+		assertEquals(2, cache.get("coffee").size());
+		assertEquals(1, cache.getMemoryHits());
+	}
+
+	@Test
+	public void deletesAnExpiredFileWhenRead() throws Exception {
+		File directory = mFolder.newFolder();
+		new LocalSearchCache(directory, 4, 8, 1, HOUR).put("coffee", RESULTS);
+		Thread.sleep(5);
+
+		LocalSearchCache cache = new LocalSearchCache(directory, 4, 8, 1, 1);
+		assertNull(cache.get("coffee"));
+		assertEquals(1, cache.getMisses());
+		assertFalse(new File(directory, "coffee").exists());
+	}
+
+	@Test
+	public void sweepDeletesExpiredFilesAndKeepsTheNewest() throws Exception {
+		File directory = mFolder.newFolder();
+		LocalSearchCache old = new LocalSearchCache(directory, 4, 100, 1, HOUR);
+		for (int i = 0; i < 5; i++) {
+			old.put("old" + i, RESULTS);
+			age(new File(directory, "old" + i));
+		}
+		for (int i = 0; i < 10; i++) {
+			old.put("new" + i, RESULTS);
+			new File(directory, "new" + i).setLastModified(System
+					.currentTimeMillis() - 1000 * (10 - i));
+		}
+
+		// the first write of a cache sweeps
+		new LocalSearchCache(directory, 4, 4, 1, HOUR).put("latest", RESULTS);
+
+		List<String> names = Arrays.asList(directory.list());
+		assertEquals(4, names.size());
+		assertTrue(names.contains("latest"));
+		assertTrue(names.contains("new9"));
+		assertTrue(names.contains("new8"));
+		assertTrue(names.contains("new7"));
+	}
+
+	private static void age(File file) {
+		assertTrue(file.setLastModified(System.currentTimeMillis() - 2 * HOUR));
+	}
+
+}
@@ -0,0 +1,95 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.esri.arcgis.android.samples.tools.PoiDatasetGenerator;
+
+public class OnDeviceSearchProviderTest {
+
+	private static final String DATASET = "# comment\n"
+			+ "\n"
+			+ "coffee\tCafe One\t4.5\t47.6400\t-122.2950\n"
+			+ "Coffee \tCafe Two\t\t47.6410\t-122.2960\n"
+			+ "bar\tThe Pub\t3\t47.6600\t-122.3100\n"
+			+ "bar\tToo few columns\t3\t47.66\n"
+			+ "bar\tBad latitude\t3\tnorth\t-122.31\n";
+
+	@Test
+	public void parsesValidLinesOnly() throws IOException {
+		OnDeviceSearchProvider provider = OnDeviceSearchProvider
+				.load(new StringReader(DATASET));
+		assertEquals(3, provider.size());
+	}
+
+	@Test
+	public void searchesByNormalizedCategory() throws IOException {
+		OnDeviceSearchProvider provider = OnDeviceSearchProvider
+				.load(new StringReader(DATASET));
+
+		List<PointOfInterest> coffee = provider.search(" COFFEE", 47.64,
+				-122.295, 1);
+		assertEquals(2, coffee.size());
+
+		List<PointOfInterest> bars = provider.search("bar", 47.64, -122.295,
+				0.5);
+		assertTrue(bars.isEmpty());
+		bars = provider.search("bar", 47.64, -122.295, 2);
+		assertEquals(1, bars.size());
+		assertEquals("The Pub", bars.get(0).title);
+		assertEquals("3", bars.get(0).rating);
+
+		assertTrue(provider.search("tea", 47.64, -122.295, 100).isEmpty());
+	}
+
+	@Test
+	public void emptyRatingIsNull() throws IOException {
+		OnDeviceSearchProvider provider = OnDeviceSearchProvider
+				.load(new StringReader(DATASET));
+		for (PointOfInterest poi : provider.search("coffee", 47.641,
+				-122.296, 0.01)) {
+			assertEquals("Cafe Two", poi.title);
+			assertNull(poi.rating);
+		}
+	}
+
+	@Test
+	public void loadsGeneratedDataset() throws IOException {
+		String overpass = "{\"elements\":["
+				+ "{\"type\":\"node\",\"lat\":47.64,\"lon\":-122.29,"
+				+ "\"tags\":{\"amenity\":\"cafe\",\"name\":\"Cafe One\"}}]}";
+		StringWriter tsv = new StringWriter();
+		PoiDatasetGenerator.generate(
+				new ByteArrayInputStream(overpass.getBytes("UTF-8")), tsv);
+
+		OnDeviceSearchProvider provider = OnDeviceSearchProvider
+				.load(new StringReader(tsv.toString()));
+		List<PointOfInterest> found = provider.search("coffee", 47.64,
+				-122.29, 0.1);
+		assertEquals(1, found.size());
+		assertEquals("Cafe One", found.get(0).title);
+	}
+
+}
@@ -0,0 +1,88 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Radius and nearest point queries of the on-device search index, over
+ * points spread across greater Seattle.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoiKdTreeBenchmark {
+
+	private static final int QUERIES = 1024;
+
+	@Param({ "1000", "50000" })
+	int size;
+
+	@Param({ "1", "5" })
+	double radiusMiles;
+
+	private PoiKdTree mTree;
+	private final double[] mLatitudes = new double[QUERIES];
+	private final double[] mLongitudes = new double[QUERIES];
+	private final List<PointOfInterest> mOut = new ArrayList<PointOfInterest>();
+	private int mNext;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(size);
+		List<PointOfInterest> pois = new ArrayList<PointOfInterest>(size);
+		for (int i = 0; i < size; i++) {
+			pois.add(new PointOfInterest("Place " + i, "4", 47.4 + random
+					.nextDouble() * 0.5, -122.5 + random.nextDouble() * 0.4));
+		}
+		mTree = new PoiKdTree(pois);
+		for (int i = 0; i < QUERIES; i++) {
+			mLatitudes[i] = 47.4 + random.nextDouble() * 0.5;
+			mLongitudes[i] = -122.5 + random.nextDouble() * 0.4;
+		}
+	}
+
+	@Benchmark
+	public int radius() {
+		int q = mNext++ & (QUERIES - 1);
+		mOut.clear();
+		mTree.query(mLatitudes[q], mLongitudes[q], radiusMiles, mOut);
+		return mOut.size();
+	}
+
+	@Benchmark
+	public PointOfInterest nearest() {
+		int q = mNext++ & (QUERIES - 1);
+		return mTree.nearest(mLatitudes[q], mLongitudes[q]);
+	}
+
+}
@@ -0,0 +1,150 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class PoiKdTreeTest {
+
+	private static final double EARTH_RADIUS_MILES = 3958.8;
+
+	@Test
+	public void queryMatchesBruteForce() {
+		List<PointOfInterest> pois = randomPois(new Random(1), 2000);
+		PoiKdTree tree = new PoiKdTree(pois);
+		Random random = new Random(2);
+		for (int i = 0; i < 200; i++) {
+			double latitude = 47.55 + random.nextDouble() * 0.2;
+			double longitude = -122.4 + random.nextDouble() * 0.25;
+			double radius = random.nextDouble() * 5;
+
+			List<PointOfInterest> found = new ArrayList<PointOfInterest>();
+			tree.query(latitude, longitude, radius, found);
+
+			Set<PointOfInterest> expected = new HashSet<PointOfInterest>();
+			for (PointOfInterest poi : pois) {
+				double d = distanceMiles(latitude, longitude, poi);
+				// points on the boundary may go either way
+				if (Math.abs(d - radius) < 1e-9) {
+					expected.remove(poi);
+					found.remove(poi);
+				} else if (d < radius) {
+					expected.add(poi);
+				}
+			}
+			assertEquals(expected.size(), found.size());
+			assertEquals(expected, new HashSet<PointOfInterest>(found));
+		}
+	}
+
+	@Test
+	public void nearestMatchesBruteForce() {
+		List<PointOfInterest> pois = randomPois(new Random(3), 1000);
+		PoiKdTree tree = new PoiKdTree(pois);
+		Random random = new Random(4);
+		for (int i = 0; i < 500; i++) {
+			double latitude = 47.5 + random.nextDouble() * 0.3;
+			double longitude = -122.45 + random.nextDouble() * 0.35;
+
+			PointOfInterest expected = null;
+			double best = Double.POSITIVE_INFINITY;
+			for (PointOfInterest poi : pois) {
+				double d = distanceMiles(latitude, longitude, poi);
+				if (d < best) {
+					best = d;
+					expected = poi;
+				}
+			}
+			PointOfInterest nearest = tree.nearest(latitude, longitude);
+			assertEquals(best, distanceMiles(latitude, longitude, nearest),
+					1e-9);
+			if (nearest != expected) {
+				// ties only
+				assertEquals(best,
+						distanceMiles(latitude, longitude, expected), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void worksAcrossTheAntimeridian() {
+		List<PointOfInterest> pois = new ArrayList<PointOfInterest>();
+		PointOfInterest east = new PointOfInterest("east", null, 0, 179.99);
+		PointOfInterest far = new PointOfInterest("far", null, 0, 170);
+		pois.add(east);
+		pois.add(far);
+		PoiKdTree tree = new PoiKdTree(pois);
+
+		assertSame(east, tree.nearest(0, -179.99));
+		List<PointOfInterest> found = new ArrayList<PointOfInterest>();
+		tree.query(0, -179.99, 5, found);
+		assertEquals(Collections.singletonList(east), found);
+	}
+
+	@Test
+	public void emptyTree() {
+		PoiKdTree tree = new PoiKdTree(new ArrayList<PointOfInterest>());
+		assertEquals(0, tree.size());
+		assertNull(tree.nearest(47.6, -122.3));
+		List<PointOfInterest> found = new ArrayList<PointOfInterest>();
+		tree.query(47.6, -122.3, 100, found);
+		assertTrue(found.isEmpty());
+	}
+
+	@Test
+	public void duplicateLocations() {
+		List<PointOfInterest> pois = new ArrayList<PointOfInterest>();
+		for (int i = 0; i < 50; i++) {
+			pois.add(new PointOfInterest("poi" + i, null, 47.64, -122.29));
+		}
+		PoiKdTree tree = new PoiKdTree(pois);
+		List<PointOfInterest> found = new ArrayList<PointOfInterest>();
+		tree.query(47.64, -122.29, 0.01, found);
+		assertEquals(50, found.size());
+	}
+
+	static List<PointOfInterest> randomPois(Random random, int count) {
+		List<PointOfInterest> pois = new ArrayList<PointOfInterest>();
+		for (int i = 0; i < count; i++) {
+			pois.add(new PointOfInterest("poi" + i, null,
+					47.5 + random.nextDouble() * 0.3,
+					-122.45 + random.nextDouble() * 0.35));
+		}
+		return pois;
+	}
+
+	private static double distanceMiles(double latitude, double longitude,
+			PointOfInterest poi) {
+		double lat1 = Math.toRadians(latitude);
+		double lat2 = Math.toRadians(poi.latitude);
+		double dLat = lat2 - lat1;
+		double dLon = Math.toRadians(poi.longitude - longitude);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) + Math.cos(lat1)
+				* Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return 2 * EARTH_RADIUS_MILES * Math.asin(Math.min(1, Math.sqrt(a)));
+	}
+
+}
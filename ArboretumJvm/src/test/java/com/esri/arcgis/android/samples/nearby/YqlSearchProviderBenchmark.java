@@ -0,0 +1,89 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.esri.arcgis.android.samples.tools.Payloads;
+import com.esri.arcgis.android.samples.tools.ReplayServer;
+import com.esri.arcgis.android.samples.tools.ReplayServer.Response;
+
+/**
+ * The streaming parse of a YQL local.search response on its own, and a whole
+ * search against the replay server. Set the server latency with
+ * -p latencyMillis=150 to see a search over a slow network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YqlSearchProviderBenchmark {
+
+	private static final String PATH = "/v1/public/yql";
+
+	@Param({ "10", "100", "1000" })
+	int results;
+
+	@Param({ "0" })
+	long latencyMillis;
+
+	private byte[] mResponse;
+	private ReplayServer mServer;
+	private YqlSearchProvider mProvider;
+
+	@Setup
+	public void setUp() throws IOException {
+		String json = Payloads.yql(results);
+		mResponse = json.getBytes("UTF-8");
+		mServer = new ReplayServer();
+		mServer.replay(PATH, Response.json(json));
+		mServer.setLatency(latencyMillis);
+		mServer.start();
+		mProvider = new YqlSearchProvider(mServer.getUrl(PATH + "?q="));
+	}
+
+	@TearDown
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Benchmark
+	public List<PointOfInterest> parse() throws IOException {
+		return YqlSearchProvider.read(new ByteArrayInputStream(mResponse));
+	}
+
+	@Benchmark
+	public List<PointOfInterest> search() throws IOException {
+		return mProvider.search("coffee", 47.64, -122.29, 5);
+	}
+
+}
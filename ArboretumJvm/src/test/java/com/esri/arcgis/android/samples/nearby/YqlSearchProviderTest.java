@@ -0,0 +1,106 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.esri.arcgis.android.samples.tools.Payloads;
+import com.esri.arcgis.android.samples.tools.ReplayServer;
+import com.esri.arcgis.android.samples.tools.ReplayServer.Response;
+
+public class YqlSearchProviderTest {
+
+	private static final String PATH = "/v1/public/yql";
+
+	private ReplayServer mServer;
+	private YqlSearchProvider mProvider;
+
+	@Before
+	public void setUp() throws IOException {
+		mServer = new ReplayServer();
+		mServer.start();
+		mProvider = new YqlSearchProvider(mServer.getUrl(PATH + "?q="));
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void readsResultsWithALocation() throws IOException {
+		mServer.replay(PATH, Response.json("{\"query\":{\"count\":3,"
+				+ "\"diagnostics\":{\"url\":[{\"content\":\"x\"}]},"
+				+ "\"results\":{\"Result\":["
+				+ "{\"Title\":\"Cafe One\",\"Latitude\":\"47.64\",\"Longitude\":\"-122.29\","
+				+ "\"Rating\":{\"AverageRating\":\"4.5\",\"TotalRatings\":\"3\"},"
+				+ "\"Categories\":{\"Category\":[{\"content\":\"Cafes\"}]}},"
+				+ "{\"Title\":\"Nowhere\",\"Rating\":{\"AverageRating\":\"3\"}},"
+				+ "{\"Title\":\"Pub\",\"Latitude\":\"47.65\",\"Longitude\":\"-122.3\","
+				+ "\"Rating\":{\"AverageRating\":\"NaN\"}}"
+				+ "]}}}"));
+
+		List<PointOfInterest> found = mProvider.search("coffee", 47.64,
+				-122.29, 2);
+
+		assertEquals(2, found.size());
+		assertEquals("Cafe One", found.get(0).title);
+		assertEquals("4.5", found.get(0).rating);
+		assertEquals(47.64, found.get(0).latitude, 0);
+		assertEquals(-122.29, found.get(0).longitude, 0);
+		assertEquals("Pub", found.get(1).title);
+
+		String q = URLDecoder.decode(mServer.getRequests(PATH).get(0), "UTF-8");
+		assertTrue(q, q.contains("from local.search where latitude=47.64"
+				+ " and longitude=-122.29 and radius=2.0 and query='coffee'"));
+		assertTrue(q, q.contains("&format=json"));
+	}
+
+	@Test
+	public void noResultsGiveAnEmptyList() throws IOException {
+		mServer.replay(PATH, Response.json("{\"query\":{\"count\":0,"
+				+ "\"created\":\"2014-03-01T18:00:00Z\",\"results\":null}}"));
+
+		assertTrue(mProvider.search("bar", 47.64, -122.29, 2).isEmpty());
+	}
+
+	@Test
+	public void readsEveryResultOfALargeResponse() throws IOException {
+		mServer.replay(PATH, Response.json(Payloads.yql(500)));
+
+		List<PointOfInterest> found = mProvider.search("coffee", 47.64,
+				-122.29, 5);
+
+		assertEquals(500, found.size());
+		assertEquals("Place 499", found.get(499).title);
+	}
+
+	@Test(expected = IOException.class)
+	public void serverErrorFailsTheSearch() throws IOException {
+		mServer.replay(PATH, new Response(500, "text/plain", "down"
+				.getBytes("UTF-8")));
+
+		mProvider.search("coffee", 47.64, -122.29, 2);
+	}
+
+}
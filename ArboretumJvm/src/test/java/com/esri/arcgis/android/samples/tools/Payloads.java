@@ -0,0 +1,118 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.tools;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Recorded-style responses of the services the apps call, generated at any
+ * size for the {@link ReplayServer}. The same size always gives the same
+ * response.
+ */
+public final class Payloads {
+
+	// UWBG (MapServer) extent in state plane feet, as in HelloWorld
+	public static final double XMIN = 1277938.4660206884;
+	public static final double YMIN = 232251.79283960164;
+	public static final double XMAX = 1281150.8841365278;
+	public static final double YMAX = 237883.30388626456;
+
+	private static final String[] CATEGORIES = { "Coffee Shops", "Cafes",
+			"Bars & Pubs", "Wine Bars" };
+	private static final String[] GENERA = { "Acer", "Quercus", "Magnolia",
+			"Rhododendron", "Sorbus", "Pinus", "Camellia", "Malus" };
+
+	private Payloads() {
+	}
+
+	/**
+	 * A YQL local.search response with the given number of results within a
+	 * few miles of the arboretum, laid out the way YQL returned them.
+	 */
+	public static String yql(int results) {
+		Random random = new Random(results);
+		StringBuilder json = new StringBuilder();
+		json.append("{\"query\":{\"count\":").append(results)
+				.append(",\"created\":\"2014-03-01T18:00:00Z\",\"lang\":\"en-US\",")
+				.append("\"diagnostics\":{\"publiclyCallable\":\"true\",")
+				.append("\"url\":{\"execution-time\":\"118\",\"content\":\"http://local.yahooapis.com/LocalSearchService/V3/localSearch\"},")
+				.append("\"user-time\":\"121\",\"service-time\":\"118\",\"build-version\":\"0.2.2090\"},")
+				.append("\"results\":{\"Result\":[");
+		for (int i = 0; i < results; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			double latitude = 47.60 + random.nextDouble() * 0.08;
+			double longitude = -122.34 + random.nextDouble() * 0.10;
+			String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+			json.append("{\"id\":\"").append(20000000 + i)
+					.append("\",\"Title\":\"Place ").append(i)
+					.append("\",\"Address\":\"").append(100 + i)
+					.append(" Madison St\",\"City\":\"Seattle\",\"State\":\"WA\",")
+					.append("\"Phone\":\"(206) 555-0").append(100 + i % 900)
+					.append("\",\"Latitude\":\"")
+					.append(String.format(Locale.US, "%.6f", latitude))
+					.append("\",\"Longitude\":\"")
+					.append(String.format(Locale.US, "%.6f", longitude))
+					.append("\",\"Rating\":{\"AverageRating\":\"")
+					.append(random.nextInt(9) / 2.0)
+					.append("\",\"TotalRatings\":\"").append(random.nextInt(50))
+					.append("\",\"TotalReviews\":\"").append(random.nextInt(20))
+					.append("\",\"LastReviewDate\":\"1393000000\",")
+					.append("\"LastReviewIntro\":\"Friendly staff and a quiet corner to read in.\"},")
+					.append("\"Distance\":\"").append(random.nextInt(500) / 100.0)
+					.append("\",\"Url\":\"http://local.yahoo.com/info-").append(20000000 + i)
+					.append("\",\"ClickUrl\":\"http://local.yahoo.com/info-").append(20000000 + i)
+					.append("\",\"MapUrl\":\"http://maps.yahoo.com/maps_result?q1=").append(20000000 + i)
+					.append("\",\"BusinessUrl\":\"\",\"BusinessClickUrl\":\"\",")
+					.append("\"Categories\":{\"Category\":[{\"id\":\"96926").append(i % 10)
+					.append("\",\"content\":\"").append(category).append("\"}]}}");
+		}
+		json.append("]}}}");
+		return json.toString();
+	}
+
+	/**
+	 * An identify response with the given number of plant results from layer
+	 * 3 of PublicFeatures, laid out the way ArcGIS Server 10.2 returns them.
+	 */
+	public static String identify(int results) {
+		Random random = new Random(results);
+		StringBuilder json = new StringBuilder("{\"results\":[");
+		for (int i = 0; i < results; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			String genus = GENERA[random.nextInt(GENERA.length)];
+			json.append("{\"layerId\":3,\"layerName\":\"Plants\",")
+					.append("\"displayFieldName\":\"Genus\",\"value\":\"")
+					.append(genus).append("\",\"attributes\":{\"OBJECTID\":\"")
+					.append(i + 1).append("\",\"Genus\":\"").append(genus)
+					.append("\",\"Species\":\"sp. ").append(i % 37)
+					.append("\",\"Accession\":\"").append(100 + i).append("-")
+					.append(i % 13).append("\",\"Bed\":\"")
+					.append(random.nextInt(400))
+					.append("\",\"Common Name\":\"Null\"},")
+					.append("\"geometryType\":\"esriGeometryPoint\",\"geometry\":{\"x\":")
+					.append(XMIN + random.nextDouble() * (XMAX - XMIN))
+					.append(",\"y\":")
+					.append(YMIN + random.nextDouble() * (YMAX - YMIN))
+					.append(",\"spatialReference\":{\"wkid\":2285,\"latestWkid\":2285}}}");
+		}
+		json.append("]}");
+		return json.toString();
+	}
+
+}
@@ -0,0 +1,49 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class PoiDatasetGeneratorTest {
+
+	private static final String OVERPASS = "{\"version\":0.6,\"osm3s\":{\"copyright\":\"ODbL\"},"
+			+ "\"elements\":["
+			+ "{\"type\":\"node\",\"id\":1,\"lat\":47.64,\"lon\":-122.29,"
+			+ "\"tags\":{\"amenity\":\"cafe\",\"name\":\"Cafe\\tOne\"}},"
+			+ "{\"type\":\"way\",\"id\":2,\"center\":{\"lat\":47.65,\"lon\":-122.3},"
+			+ "\"nodes\":[1,2,3],\"tags\":{\"amenity\":\"pub\",\"name\":\"The Pub\"}},"
+			+ "{\"type\":\"node\",\"id\":3,\"lat\":47.6,\"lon\":-122.3,"
+			+ "\"tags\":{\"amenity\":\"bank\",\"name\":\"A Bank\"}},"
+			+ "{\"type\":\"node\",\"id\":4,\"lat\":47.6,\"lon\":-122.3,"
+			+ "\"tags\":{\"amenity\":\"bar\"}}"
+			+ "]}";
+
+	@Test
+	public void writesKnownAmenitiesWithNames() throws IOException {
+		StringWriter out = new StringWriter();
+		int count = PoiDatasetGenerator.generate(new ByteArrayInputStream(
+				OVERPASS.getBytes("UTF-8")), out);
+		assertEquals(2, count);
+		assertEquals(PoiDatasetGenerator.HEADER
+				+ "coffee\tCafe One\t\t47.64\t-122.29\n"
+				+ "bar\tThe Pub\t\t47.65\t-122.3\n", out.toString());
+	}
+
+}
@@ -0,0 +1,120 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.esri.arcgis.android.samples.tools.ReplayServer.Response;
+
+public class ReplayServerTest {
+
+	@Rule
+	public TemporaryFolder mFolder = new TemporaryFolder();
+
+	private ReplayServer mServer;
+
+	@Before
+	public void setUp() throws IOException {
+		mServer = new ReplayServer();
+		mServer.start();
+	}
+
+	@After
+	public void tearDown() {
+		mServer.stop();
+	}
+
+	@Test
+	public void replaysRecordedFilesWithoutTheirExtension() throws IOException {
+		File dir = mFolder.newFolder("recorded");
+		File service = new File(dir, "UWBG/MapServer");
+		assertTrue(service.mkdirs());
+		write(new File(service, "identify.json"), "{\"results\":[]}");
+		write(new File(service, "export.png"), "png");
+		mServer.replay(dir);
+
+		HttpURLConnection identify = open("/UWBG/MapServer/identify?f=json");
+		assertEquals(200, identify.getResponseCode());
+		assertEquals("application/json;charset=UTF-8",
+				identify.getContentType());
+		assertEquals("{\"results\":[]}", read(identify));
+		HttpURLConnection export = open("/UWBG/MapServer/export");
+		assertEquals("image/png", export.getContentType());
+		assertEquals("png", read(export));
+
+		assertEquals(Arrays.asList("f=json"), mServer
+				.getRequests("/UWBG/MapServer/identify"));
+	}
+
+	@Test
+	public void unknownPathIsNotFound() throws IOException {
+		assertEquals(404, open("/nothing").getResponseCode());
+	}
+
+	@Test
+	public void responsesWaitForTheLatency() throws IOException {
+		mServer.replay("/slow", Response.json("{}"));
+		mServer.setLatency(200);
+
+		long start = System.nanoTime();
+		assertEquals("{}", read(open("/slow")));
+		assertTrue((System.nanoTime() - start) / 1000000 >= 200);
+	}
+
+	private HttpURLConnection open(String path) throws IOException {
+		return (HttpURLConnection) new URL(mServer.getUrl(path))
+				.openConnection();
+	}
+
+	private static String read(HttpURLConnection connection)
+			throws IOException {
+		InputStream in = connection.getInputStream();
+		try {
+			StringBuilder text = new StringBuilder();
+			int c;
+			while ((c = in.read()) != -1) {
+				text.append((char) c);
+			}
+			return text.toString();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void write(File file, String text) throws IOException {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+
+}
@@ -13,16 +13,26 @@
 
 package com.esri.arcgis.android.samples.helloworld;
 
+import java.io.File;
+import java.io.IOException;
+
 import android.app.Activity;
 import android.os.Bundle;
 import android.util.Log;
 
+import com.esri.android.map.Layer;
 import com.esri.android.map.MapOptions;
 import com.esri.android.map.MapOptions.MapType;
 import com.esri.android.map.MapView;
-import com.esri.android.map.ags.ArcGISDynamicMapServiceLayer;
 import com.esri.android.map.ags.ArcGISTiledMapServiceLayer;
 import com.esri.android.map.event.OnStatusChangedListener;
+import com.esri.arcgis.android.samples.arboretum.ArboretumLayer;
+import com.esri.arcgis.android.samples.arboretum.CachingDynamicMapServiceLayer;
+import com.esri.arcgis.android.samples.arboretum.ExportCache;
+import com.esri.arcgis.android.samples.arboretum.FirstRenderListener;
+import com.esri.arcgis.android.samples.arboretum.LatencyRecorder;
+import com.esri.arcgis.android.samples.arboretum.TilePack;
+import com.esri.arcgis.android.samples.arboretum.TilePackLayer;
 import com.esri.core.geometry.Envelope;
 import com.esri.core.geometry.Point;
 
@@ -43,7 +53,10 @@ public class HelloWorld extends Activity {
 	private MAP_OPTION mMapOption = MAP_OPTION.ADD_FEATURES;
 	
 	private static final String TAG = "HelloWorld";	
+	private static final String TILE_PACK = "uwbg.pack";
     private MapView mMapView;
+    // exported map images, shared by every layer
+    private ExportCache mExportCache;
     
     // Arboretum coordinates: 47.640139, -122.293780
 
@@ -52,21 +65,29 @@ public class HelloWorld extends Activity {
    public void onCreate(Bundle savedInstanceState) {
 	   super.onCreate(savedInstanceState);
 	   Log.i(TAG, "onCreate()");
+	   mExportCache = ExportCache.getInstance(this);
      
 	   if (mMapOption == MAP_OPTION.USE_XML_MAP1) {
 		   setContentView(R.layout.main1);
 		   // After the content of this Activity is set, the map can be accessed programmatically from the layout.
 		   mMapView = (MapView) findViewById(R.id.map);
-		   mMapView.addLayer(new ArcGISDynamicMapServiceLayer( 
-				   "http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/UWBG/MapServer"));
+		   addLayer(new CachingDynamicMapServiceLayer( 
+				   ArboretumLayer.UWBG.getUrl(), mExportCache));
       	}
       	else if (mMapOption == MAP_OPTION.USE_XML_MAP2) {
       		setContentView(R.layout.main2);
       		// After the content of this Activity is set, the map can be accessed programmatically from the layout.
       		mMapView = (MapView) findViewById(R.id.map);
           
-      		mMapView.addLayer(new ArcGISDynamicMapServiceLayer( 
-      				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/UWBG/MapServer"));
+      		// The first layer sets the map's state plane spatial reference, so a tile pack seeded
+      		// by TilePackSeeder can stand in for the service when one has been copied to the device.
+      		TilePackLayer offline = openTilePack();
+      		if (offline != null) {
+      			addLayer(offline);
+      		} else {
+      			addLayer(new CachingDynamicMapServiceLayer( 
+      					ArboretumLayer.UWBG.getUrl(), mExportCache));
+      		}
   
       		// values from UWBG (MapServer)- All Layers and Tables
 	      	double XMin = 1277938.4660206884;
@@ -87,15 +108,40 @@ public class HelloWorld extends Activity {
 	      	Envelope envelope = new Envelope(XMin, YMin, XMax, YMax);      
 	      	mMapView.setExtent(envelope);      
 
-    	  	mMapView.addLayer(new ArcGISDynamicMapServiceLayer( 
-    	  			"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/UWBG/MapServer")); 
-    	  	mMapView.addLayer(new ArcGISDynamicMapServiceLayer( 
-    	  			"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PublicFeatures/MapServer"));    	  	
+    	  	addLayer(new CachingDynamicMapServiceLayer( 
+    	  			ArboretumLayer.UWBG.getUrl(), mExportCache)); 
+    	  	addLayer(new CachingDynamicMapServiceLayer( 
+    	  			ArboretumLayer.PUBLIC_FEATURES.getUrl(), mExportCache));    	  	
      		setContentView(mMapView);
 
       	}      
    }
 
+   /**
+    * Adds the layer to the map, recording how long it takes to first draw.
+    */
+   private void addLayer(Layer layer) {
+	   layer.setOnStatusChangedListener(new FirstRenderListener());
+	   mMapView.addLayer(layer);
+   }
+
+   /**
+    * Opens the UWBG tile pack written by TilePackSeeder, if it is in the app's external files directory.
+    */
+   private TilePackLayer openTilePack() {
+	   File dir = getExternalFilesDir(null);
+	   File file = dir == null ? null : new File(dir, TILE_PACK);
+	   if (file == null || !file.isFile()) {
+		   return null;
+	   }
+	   try {
+		   return new TilePackLayer(TilePack.open(file));
+	   } catch (IOException e) {
+		   Log.w(TAG, "Unable to open " + file, e);
+		   return null;
+	   }
+   }
+
    @Override
    protected void onPause() {
 	   super.onPause();
@@ -105,6 +151,7 @@ public class HelloWorld extends Activity {
 	   if (mMapView != null) {
 		   mMapView.pause();
 	   }
+	   LatencyRecorder.getInstance().export(this);
    }
 
    @Override
@@ -0,0 +1,181 @@
+/*
+ /*
+ * Copyright 2010 ESRI
+ * All rights reserved under the copyright laws of the United States and applicable international laws, treaties, and conventions.
+ * You may freely redistribute and use this sample code, with or without modification, provided you include the original copyright notice and use restrictions.
+ * Disclaimer: THE SAMPLE CODE IS PROVIDED "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL ESRI OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) SUSTAINED BY YOU OR A THIRD PARTY, HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT ARISING IN ANY WAY OUT OF THE USE OF THIS SAMPLE CODE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * For additional information, contact:
+ * Environmental Systems Research Institute, Inc.
+ * Attn: Contracts and Legal Services Department
+ * 380 New York Street Redlands, California, 92373
+ * USA
+ * email: contracts@esri.com 
+ */
+
+package com.esri.arcgis.android.samples.highlightfeatures;
+
+import android.util.SparseArray;
+
+import com.esri.core.geometry.Geometry;
+import com.esri.core.geometry.MultiPath;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.Polygon;
+import com.esri.core.geometry.Polyline;
+
+/**
+ * A highlight geometry with simplified copies for the map resolutions it is
+ * drawn at.
+ *
+ * Polylines and polygons are simplified with Douglas-Peucker to a tolerance
+ * of 2^level map units, where level is the largest power of two not above
+ * the resolution, so no vertex moves by more than a pixel. Each level is
+ * computed once and kept, so zooming back and forth reuses earlier copies.
+ * Rings that collapse are dropped; if every part of a feature collapses, the
+ * next finer level is used instead. Other geometries, and those with few
+ * vertices, are drawn as they are.
+ */
+class GeneralizedGeometry {
+
+  /** The level at and below which geometries are drawn as they are. */
+  static final int FULL_DETAIL = -64;
+
+  // geometries with fewer vertices are not worth simplifying
+  private static final int MIN_VERTICES = 32;
+
+  final Geometry original;
+  private final SparseArray<Geometry> mLevels = new SparseArray<Geometry>();
+
+  GeneralizedGeometry(Geometry original) {
+    this.original = original;
+  }
+
+  /**
+   * Returns the level of detail for a map resolution in map units per pixel,
+   * or FULL_DETAIL if the map has no resolution yet.
+   */
+  static int levelOf(double resolution) {
+    if (!(resolution > 0)) {
+      return FULL_DETAIL;
+    }
+    return Math.max((int) Math.floor(Math.log(resolution) / Math.log(2)), FULL_DETAIL);
+  }
+
+  /**
+   * Returns the geometry simplified for the level, computing it the first
+   * time. May be called from any thread.
+   */
+  synchronized Geometry at(int level) {
+    if (level <= FULL_DETAIL || !(original instanceof MultiPath)
+        || ((MultiPath) original).getPointCount() < MIN_VERTICES) {
+      return original;
+    }
+    Geometry geometry = mLevels.get(level);
+    if (geometry == null) {
+      geometry = simplify((MultiPath) original, Math.pow(2, level));
+      if (geometry == null) {
+        // keep a feature visible even when every part is below the tolerance
+        geometry = at(level - 1);
+      }
+      mLevels.put(level, geometry);
+    }
+    return geometry;
+  }
+
+  /*
+   * Returns the simplified geometry, or null if no part is left.
+   */
+  private static Geometry simplify(MultiPath source, double tolerance) {
+    boolean polygon = source instanceof Polygon;
+    MultiPath result = polygon ? new Polygon() : new Polyline();
+    int minPoints = polygon ? 3 : 2;
+    Point point = new Point();
+    for (int path = 0; path < source.getPathCount(); path++) {
+      int start = source.getPathStart(path);
+      int size = source.getPathSize(path);
+      double[] xs = new double[size];
+      double[] ys = new double[size];
+      for (int i = 0; i < size; i++) {
+        source.getPoint(start + i, point);
+        xs[i] = point.getX();
+        ys[i] = point.getY();
+      }
+      boolean[] keep = douglasPeucker(xs, ys, tolerance);
+      int kept = 0;
+      for (boolean k : keep) {
+        if (k) {
+          kept++;
+        }
+      }
+      // a ring narrower than the tolerance is not visible at this scale
+      if (kept < minPoints) {
+        continue;
+      }
+      boolean started = false;
+      for (int i = 0; i < size; i++) {
+        if (!keep[i]) {
+          continue;
+        }
+        if (started) {
+          result.lineTo(xs[i], ys[i]);
+        } else {
+          result.startPath(xs[i], ys[i]);
+          started = true;
+        }
+      }
+    }
+    return result.getPathCount() > 0 ? result : null;
+  }
+
+  /*
+   * Marks the vertices of a path to keep. Uses an explicit stack so that
+   * long paths cannot overflow the thread's stack.
+   */
+  private static boolean[] douglasPeucker(double[] xs, double[] ys, double tolerance) {
+    int n = xs.length;
+    boolean[] keep = new boolean[n];
+    if (n == 0) {
+      return keep;
+    }
+    keep[0] = true;
+    keep[n - 1] = true;
+    double tolerance2 = tolerance * tolerance;
+    int[] stack = new int[2 * n];
+    int top = 0;
+    stack[top++] = 0;
+    stack[top++] = n - 1;
+    while (top > 0) {
+      int last = stack[--top];
+      int first = stack[--top];
+      double maxDistance2 = -1;
+      int farthest = -1;
+      for (int i = first + 1; i < last; i++) {
+        double d2 = segmentDistance2(xs[i], ys[i], xs[first], ys[first], xs[last], ys[last]);
+        if (d2 > maxDistance2) {
+          maxDistance2 = d2;
+          farthest = i;
+        }
+      }
+      if (farthest >= 0 && maxDistance2 > tolerance2) {
+        keep[farthest] = true;
+        stack[top++] = first;
+        stack[top++] = farthest;
+        stack[top++] = farthest;
+        stack[top++] = last;
+      }
+    }
+    return keep;
+  }
+
+  private static double segmentDistance2(double x, double y, double x1, double y1, double x2,
+      double y2) {
+    double dx = x2 - x1;
+    double dy = y2 - y1;
+    double length2 = dx * dx + dy * dy;
+    double t = length2 == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / length2;
+    t = Math.max(0, Math.min(1, t));
+    double px = x1 + t * dx - x;
+    double py = y1 + t * dy - y;
+    return px * px + py * py;
+  }
+
+}
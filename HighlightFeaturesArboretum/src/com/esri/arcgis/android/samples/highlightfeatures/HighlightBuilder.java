@@ -0,0 +1,96 @@
+/*
+ /*
+ * Copyright 2010 ESRI
+ * All rights reserved under the copyright laws of the United States and applicable international laws, treaties, and conventions.
+ * You may freely redistribute and use this sample code, with or without modification, provided you include the original copyright notice and use restrictions.
+ * Disclaimer: THE SAMPLE CODE IS PROVIDED "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL ESRI OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) SUSTAINED BY YOU OR A THIRD PARTY, HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT ARISING IN ANY WAY OUT OF THE USE OF THIS SAMPLE CODE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * For additional information, contact:
+ * Environmental Systems Research Institute, Inc.
+ * Attn: Contracts and Legal Services Department
+ * 380 New York Street Redlands, California, 92373
+ * USA
+ * email: contracts@esri.com 
+ */
+
+package com.esri.arcgis.android.samples.highlightfeatures;
+
+import java.util.EnumMap;
+
+import com.esri.core.geometry.Geometry;
+import com.esri.core.map.Graphic;
+import com.esri.core.symbol.SimpleFillSymbol;
+import com.esri.core.symbol.SimpleLineSymbol;
+import com.esri.core.symbol.SimpleMarkerSymbol;
+import com.esri.core.symbol.SimpleMarkerSymbol.STYLE;
+import com.esri.core.symbol.Symbol;
+
+/**
+ * Builds highlight graphics in one color. One symbol per geometry type is
+ * created on first use and shared by every graphic of that type; the symbols
+ * are never changed afterwards.
+ */
+class HighlightBuilder {
+
+  private static final int MARKER_SIZE = 20;
+  private static final int LINE_WIDTH = 5;
+
+  private final int mColor;
+  private final EnumMap<Geometry.Type, Symbol> mSymbols = new EnumMap<Geometry.Type, Symbol>(Geometry.Type.class);
+
+  HighlightBuilder(int color) {
+    mColor = color;
+  }
+
+  /**
+   * Returns a graphic for each geometry that can be highlighted, skipping
+   * missing geometries and unknown types, ready for a single addGraphics call.
+   */
+  Graphic[] build(Geometry[] geometries) {
+    Graphic[] graphics = new Graphic[geometries.length];
+    int count = 0;
+    for (Geometry geometry : geometries) {
+      Symbol symbol = geometry == null ? null : symbolFor(geometry.getType());
+      if (symbol != null) {
+        graphics[count++] = new Graphic(geometry, symbol);
+      }
+    }
+    if (count == graphics.length) {
+      return graphics;
+    }
+    Graphic[] trimmed = new Graphic[count];
+    System.arraycopy(graphics, 0, trimmed, 0, count);
+    return trimmed;
+  }
+
+  /**
+   * Returns the shared symbol for the geometry type, or null if the type
+   * cannot be highlighted.
+   */
+  Symbol symbolFor(Geometry.Type type) {
+    Symbol symbol = mSymbols.get(type);
+    if (symbol == null) {
+      symbol = createSymbol(type);
+      if (symbol != null) {
+        mSymbols.put(type, symbol);
+      }
+    }
+    return symbol;
+  }
+
+  private Symbol createSymbol(Geometry.Type type) {
+    switch (type) {
+    case POINT:
+    case MULTIPOINT:
+      return new SimpleMarkerSymbol(mColor, MARKER_SIZE, STYLE.SQUARE);
+    case LINE:
+    case POLYLINE:
+      return new SimpleLineSymbol(mColor, LINE_WIDTH);
+    case ENVELOPE:
+    case POLYGON:
+      return new SimpleFillSymbol(mColor);
+    default:
+      return null;
+    }
+  }
+
+}
@@ -17,15 +17,17 @@ package com.esri.arcgis.android.samples.highlightfeatures;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
 import android.content.DialogInterface;
 import android.graphics.Color;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.Gravity;
 import android.view.View;
 import android.widget.Button;
@@ -39,18 +41,26 @@ import com.esri.android.map.MapOptions.MapType;
 import com.esri.android.map.ags.ArcGISDynamicMapServiceLayer;
 import com.esri.android.map.ags.ArcGISTiledMapServiceLayer;
 import com.esri.android.map.event.OnLongPressListener;
+import com.esri.android.map.event.OnPanListener;
 import com.esri.android.map.event.OnStatusChangedListener;
+import com.esri.android.map.event.OnZoomListener;
+import com.esri.arcgis.android.samples.arboretum.CachingDynamicMapServiceLayer;
+import com.esri.arcgis.android.samples.arboretum.CachingIdentifyTask;
+import com.esri.arcgis.android.samples.arboretum.ExportCache;
+import com.esri.arcgis.android.samples.arboretum.FeatureGeometryCache;
+import com.esri.arcgis.android.samples.arboretum.FirstRenderListener;
+import com.esri.arcgis.android.samples.arboretum.IdentifyCache;
+import com.esri.arcgis.android.samples.arboretum.IdentifyPrefetcher;
+import com.esri.arcgis.android.samples.arboretum.LatencyRecorder;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler.CancellationToken;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler.Priority;
 import com.esri.core.geometry.Envelope;
 import com.esri.core.geometry.Geometry;
 import com.esri.core.geometry.Point;
 import com.esri.core.map.Graphic;
-import com.esri.core.symbol.SimpleFillSymbol;
-import com.esri.core.symbol.SimpleLineSymbol;
-import com.esri.core.symbol.SimpleMarkerSymbol;
-import com.esri.core.symbol.SimpleMarkerSymbol.STYLE;
 import com.esri.core.tasks.identify.IdentifyParameters;
 import com.esri.core.tasks.identify.IdentifyResult;
-import com.esri.core.tasks.identify.IdentifyTask;
 
 public class HighlightFeatures extends Activity {
 	
@@ -62,9 +72,22 @@ public class HighlightFeatures extends Activity {
   ArcGISDynamicMapServiceLayer mTiledMapServiceLayer;
   GraphicsLayer mGraphicsLayer;
   Graphic[] mHighlightGraphics;
+  // shares one yellow symbol per geometry type across all highlights
+  final HighlightBuilder mHighlightBuilder = new HighlightBuilder(Color.rgb(255, 255, 0));
+  // full geometry of each highlight by graphic id, and the level drawn
+  final SparseArray<GeneralizedGeometry> mHighlights = new SparseArray<GeneralizedGeometry>();
+  final SparseIntArray mHighlightLevels = new SparseIntArray();
+  // cancels simplifying the highlights for a scale zoomed away from
+  CancellationToken mGeneralizing;
   
   ArrayList<IdentifyResult> identifyResults;
 
+  // cancels the identify in flight when a newer one starts
+  CancellationToken mCurrentIdentify;
+
+  // identifies the selected layer in the visible extent while the map is idle
+  IdentifyPrefetcher mPrefetcher;
+
   // Android UI elements
   Button mClearButton;
   Button mLayerButton;
@@ -85,7 +108,8 @@ public class HighlightFeatures extends Activity {
 
   final int[] mLayerIndexes = new int[] {0,1,2,3,4,5,6,7,8,9,10,11,12,13,14,15,16,17,18,19,20,21,22}; 
 
-  int mSelectedLayerIndex = -1;
+  // layers identified on a long press, by index into mLayerNames
+  boolean[] mSelectedLayers = new boolean[mLayerNames.length];
 
   @Override
   public void onCreate(Bundle savedInstanceState) {
@@ -95,6 +119,44 @@ public class HighlightFeatures extends Activity {
 
     // Initialize ArcGIS Android MapView
     mMapView = (MapView) findViewById(R.id.map);
+    mPrefetcher = new IdentifyPrefetcher(mMapView, mMapURL, IdentifyCache.getInstance());
+
+    // Prefetch again whenever the map settles somewhere new
+    mMapView.setOnPanListener(new OnPanListener() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public void prePointerMove(float fromx, float fromy, float tox, float toy) {
+      }
+
+      @Override
+      public void postPointerMove(float fromx, float fromy, float tox, float toy) {
+      }
+
+      @Override
+      public void prePointerUp(float fromx, float fromy, float tox, float toy) {
+      }
+
+      @Override
+      public void postPointerUp(float fromx, float fromy, float tox, float toy) {
+        mPrefetcher.mapChanged(selectedLayers());
+      }
+    });
+    mMapView.setOnZoomListener(new OnZoomListener() {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public void preAction(float pivotX, float pivotY, double factor) {
+      }
+
+      @Override
+      public void postAction(float pivotX, float pivotY, double factor) {
+        mPrefetcher.mapChanged(selectedLayers());
+        generalizeHighlights();
+      }
+    });
 
     // Long Press listener for map view
     mMapView.setOnLongPressListener(new OnLongPressListener() {
@@ -103,22 +165,24 @@ public class HighlightFeatures extends Activity {
 
       /*
        * Invoked when user does a Long Press on map. This fires an identify
-       * query for features covered by user's finder, on selected layer.
+       * query for features covered by user's finder on each selected layer,
+       * in parallel.
        */
       @Override
       public boolean onLongPress(float x, float y) {
         try {
-            if (mTiledMapServiceLayer.isInitialized() && mSelectedLayerIndex >= 0) {
+            int[] layers = selectedLayers();
+            if (mTiledMapServiceLayer.isInitialized() && layers != null) {
 
-                mGraphicsLayer.removeAll();
+                clearHighlights();
 
                 // Get the point user clicked on
+                long pressed = LatencyRecorder.now();
                 Point pointClicked = mMapView.toMapPoint(x, y);
 
                 // Set parameters for identify task
                 IdentifyParameters inputParameters = new IdentifyParameters();
                 inputParameters.setGeometry(pointClicked);
-                inputParameters.setLayers(new int[] { mLayerIndexes[mSelectedLayerIndex] });
                 Envelope env = new Envelope();
                 mMapView.getExtent().queryEnvelope(env);
                 inputParameters.setSpatialReference(mMapView.getSpatialReference());
@@ -127,10 +191,25 @@ public class HighlightFeatures extends Activity {
                 inputParameters.setMapHeight(mMapView.getHeight());
                 inputParameters.setMapWidth(mMapView.getWidth());
                 inputParameters.setTolerance(10);
-
-                // Execute identify task
-                MyIdentifyTask mIdenitfy = new MyIdentifyTask();
-                mIdenitfy.execute(inputParameters);
+                // attributes only; geometry is fetched for the features drawn
+                inputParameters.setReturnGeometry(false);
+
+                // Execute an identify task per layer, ahead of any background
+                // work. The scheduler's workers bound how many run at once.
+                // With several layers the identifies run at normal priority,
+                // so fetching the geometry of the layers already answered is
+                // not held up by the layers still waiting. clearHighlights()
+                // cancelled the previous round.
+                mCurrentIdentify = new CancellationToken();
+                IdentifyRound round = new IdentifyRound(layers.length, pressed);
+                Priority priority = layers.length == 1 ? Priority.INTERACTIVE : Priority.NORMAL;
+                for (int layer : layers) {
+                  IdentifyParameters layerParameters = copyOf(inputParameters);
+                  layerParameters.setLayers(new int[] { layer });
+                  MyIdentifyTask mIdenitfy = new MyIdentifyTask(layerParameters, round);
+                  TaskScheduler.getInstance().submit(priority, mCurrentIdentify, mIdenitfy,
+                      mIdenitfy);
+                }
 
               } else {
                 Toast toast = Toast.makeText(getApplicationContext(), "Please select a layer to identify features from.",
@@ -165,7 +244,7 @@ public class HighlightFeatures extends Activity {
     mClearButton.setOnClickListener(new View.OnClickListener() {
       @Override
       public void onClick(View v) {
-        mGraphicsLayer.removeAll();
+        clearHighlights();
         mClearButton.setEnabled(false);
       }
     });
@@ -184,11 +263,8 @@ public class HighlightFeatures extends Activity {
       // Retrieve map view state
       mMapView.restoreState((String) init[0]);
 
-      int index = ((Integer) init[1]).intValue();
-      if (index != -1) {
-        mLabel.setText(mLayerNames[index]);
-        mSelectedLayerIndex = index;
-      }
+      mSelectedLayers = (boolean[]) init[1];
+      updateLabel();
     } else {
       /*
        * Initialize MapView, TiledMapServiceLayer and GraphicsLayer. This block
@@ -198,7 +274,8 @@ public class HighlightFeatures extends Activity {
     }
 
 		//mTiledMapServiceLayer = new ArcGISTiledMapServiceLayer(mMapURL);
-		mTiledMapServiceLayer = new ArcGISDynamicMapServiceLayer(mMapURL);
+		mTiledMapServiceLayer = new CachingDynamicMapServiceLayer(mMapURL,
+				ExportCache.getInstance(this));
     	mGraphicsLayer = new GraphicsLayer();
 
     /*
@@ -208,7 +285,7 @@ public class HighlightFeatures extends Activity {
      * this case, we are modifying state of other UI elements if and when the
      * layer is loaded.
      */
-    mTiledMapServiceLayer.setOnStatusChangedListener(new OnStatusChangedListener() {
+    mTiledMapServiceLayer.setOnStatusChangedListener(new FirstRenderListener(new OnStatusChangedListener() {
       private static final long serialVersionUID = 1L;
 
       @Override
@@ -219,9 +296,10 @@ public class HighlightFeatures extends Activity {
          */
         if (status.equals(OnStatusChangedListener.STATUS.INITIALIZED)) {
           mLayerButton.setEnabled(true);
+          mPrefetcher.mapChanged(selectedLayers());
         }
       }
-    });
+    }));
 
     // Add TiledMapServiceLayer and GraphicsLayer to map
     mMapView.addLayer(mTiledMapServiceLayer);
@@ -232,22 +310,28 @@ public class HighlightFeatures extends Activity {
   public Object onRetainNonConfigurationInstance() {
     Object[] objs = new Object[2];
     objs[0] = mMapView.retainState();
-    objs[1] = Integer.valueOf(mSelectedLayerIndex);
+    objs[1] = mSelectedLayers;
     return objs;
   }
 
   /**
-   * Returns an AlertDialog that includes names of all layers in the map service
+   * Returns an AlertDialog that includes names of all layers in the map
+   * service, any number of which can be checked
    */
   @Override
   protected Dialog onCreateDialog(int id) {
-    return new AlertDialog.Builder(HighlightFeatures.this).setTitle("Select a Layer")
-        .setItems(mLayerNames, new DialogInterface.OnClickListener() {
+    return new AlertDialog.Builder(HighlightFeatures.this).setTitle("Select Layers")
+        .setMultiChoiceItems(mLayerNames, mSelectedLayers, new DialogInterface.OnMultiChoiceClickListener() {
+          @Override
+          public void onClick(DialogInterface dialog, int which, boolean isChecked) {
+            mSelectedLayers[which] = isChecked;
+          }
+        })
+        .setPositiveButton(android.R.string.ok, new DialogInterface.OnClickListener() {
           @Override
           public void onClick(DialogInterface dialog, int which) {
-            mLabel.setText(mLayerNames[which] + " selected.");
-        
-            mSelectedLayerIndex = which;
+            updateLabel();
+            mPrefetcher.mapChanged(selectedLayers());
 
             Toast toast = Toast.makeText(getApplicationContext(), "Identify features by pressing for 2-3 seconds.",
                 Toast.LENGTH_LONG);
@@ -260,6 +344,10 @@ public class HighlightFeatures extends Activity {
   @Override
   protected void onPause() {
     super.onPause();
+    cancelIdentify();
+    cancelGeneralizing();
+    mPrefetcher.cancel();
+    LatencyRecorder.getInstance().export(this);
     mMapView.pause();
   }
 
@@ -269,41 +357,227 @@ public class HighlightFeatures extends Activity {
     mMapView.unpause();
   }
 
-  private class MyIdentifyTask extends AsyncTask<IdentifyParameters, Void, IdentifyResult[]> {
+  /*
+   * Returns the layers identified on a long press, or null if none is
+   * selected.
+   */
+  private int[] selectedLayers() {
+    int count = 0;
+    for (boolean selected : mSelectedLayers) {
+      if (selected) {
+        count++;
+      }
+    }
+    if (count == 0) {
+      return null;
+    }
+    int[] layers = new int[count];
+    count = 0;
+    for (int i = 0; i < mSelectedLayers.length; i++) {
+      if (mSelectedLayers[i]) {
+        layers[count++] = mLayerIndexes[i];
+      }
+    }
+    return layers;
+  }
+
+  private void updateLabel() {
+    StringBuilder names = new StringBuilder();
+    for (int i = 0; i < mSelectedLayers.length; i++) {
+      if (mSelectedLayers[i]) {
+        names.append(names.length() == 0 ? "" : ", ").append(mLayerNames[i]);
+      }
+    }
+    mLabel.setText(names.length() == 0 ? "" : names + " selected.");
+  }
 
-    IdentifyTask mIdentifyTask;
+  private static IdentifyParameters copyOf(IdentifyParameters source) {
+    IdentifyParameters params = new IdentifyParameters();
+    params.setGeometry(source.getGeometry());
+    params.setLayers(source.getLayers());
+    params.setLayerMode(source.getLayerMode());
+    params.setSpatialReference(source.getSpatialReference());
+    params.setMapExtent(source.getMapExtent());
+    params.setDPI(source.getDPI());
+    params.setMapHeight(source.getMapHeight());
+    params.setMapWidth(source.getMapWidth());
+    params.setTolerance(source.getTolerance());
+    params.setReturnGeometry(source.getReturnGeometry());
+    return params;
+  }
 
-    @Override
-    protected IdentifyResult[] doInBackground(IdentifyParameters... params) {
-      IdentifyResult[] mResult = null;
-      if (params != null && params.length > 0) {
-        IdentifyParameters mParams = params[0];
-        try {
-          mResult = mIdentifyTask.execute(mParams);
-        } catch (Exception e) {
-          e.printStackTrace();
-        }
+  private void cancelIdentify() {
+    if (mCurrentIdentify != null) {
+      mCurrentIdentify.cancel();
+      mCurrentIdentify = null;
+    }
+  }
+
+  private void cancelGeneralizing() {
+    if (mGeneralizing != null) {
+      mGeneralizing.cancel();
+      mGeneralizing = null;
+    }
+  }
+
+  /*
+   * Removes the highlights and stops the identify and generalizing work that
+   * would draw more.
+   */
+  private void clearHighlights() {
+    cancelIdentify();
+    cancelGeneralizing();
+    mGraphicsLayer.removeAll();
+    mHighlights.clear();
+    mHighlightLevels.clear();
+  }
 
+  /*
+   * Redraws the highlights drawn at another level of detail than the map's
+   * current one. The simplified geometries are computed on a scheduler
+   * worker, or taken from those kept from earlier zooms.
+   */
+  private void generalizeHighlights() {
+    final int level = GeneralizedGeometry.levelOf(mMapView.getResolution());
+    final ArrayList<Integer> ids = new ArrayList<Integer>();
+    final ArrayList<GeneralizedGeometry> highlights = new ArrayList<GeneralizedGeometry>();
+    for (int i = 0; i < mHighlights.size(); i++) {
+      int id = mHighlights.keyAt(i);
+      if (mHighlightLevels.get(id) != level) {
+        ids.add(id);
+        highlights.add(mHighlights.valueAt(i));
       }
-      return mResult;
+    }
+    cancelGeneralizing();
+    if (ids.isEmpty()) {
+      return;
     }
 
-    @Override
-    protected void onPostExecute(IdentifyResult[] results) {
-      if (results != null && results.length > 0) {
+    mGeneralizing = new CancellationToken();
+    TaskScheduler.getInstance().submit(Priority.NORMAL, mGeneralizing,
+        new Callable<Geometry[]>() {
+          @Override
+          public Geometry[] call() {
+            Geometry[] geometries = new Geometry[highlights.size()];
+            for (int i = 0; i < geometries.length; i++) {
+              geometries[i] = highlights.get(i).at(level);
+            }
+            return geometries;
+          }
+        }, new TaskScheduler.Callback<Geometry[]>() {
+          @Override
+          public void onResult(Geometry[] geometries) {
+            for (int i = 0; i < geometries.length; i++) {
+              int id = ids.get(i);
+              // skip highlights cleared in the meantime
+              if (mHighlights.get(id) == highlights.get(i)) {
+                mGraphicsLayer.updateGraphic(id, geometries[i]);
+                mHighlightLevels.put(id, level);
+              }
+            }
+          }
 
-        mHighlightGraphics = new Graphic[results.length];
-        String msg = results.length + " features identified\n";
+          @Override
+          public void onError(Exception e) {
+            Log.w(TAG, "Unable to simplify the highlights", e);
+          }
+        });
+  }
+
+  /*
+   * The identifies of one long press. Layers are highlighted as they come
+   * in; the total is reported once every layer has answered.
+   */
+  private class IdentifyRound {
+    final long mPressed;
+    // identifies and highlights still running
+    int mPending;
+    int mFound = 0;
+    boolean mPublished = false;
+
+    IdentifyRound(int layers, long pressed) {
+      mPending = layers;
+      mPressed = pressed;
+    }
+
+    void identified(IdentifyResult[] results) {
+      if (results != null) {
+        mFound += results.length;
+      }
+      finished();
+    }
+
+    void published() {
+      if (!mPublished) {
+        LatencyRecorder.getInstance().record("highlight.first", mPressed);
+        mPublished = true;
+      }
+    }
+
+    void finished() {
+      if (--mPending > 0) {
+        return;
+      }
+      LatencyRecorder.getInstance().record("highlight.total", mPressed);
+      if (mFound > 0) {
+        String msg = mFound + " features identified\n";
         Log.i(TAG, msg);
         Toast toast = Toast.makeText(getApplicationContext(), msg,
             Toast.LENGTH_LONG);
         toast.setGravity(Gravity.BOTTOM, 0, 0);
         toast.show();
+      } else {
+        String msg = "No features identified.";
+        Log.i(TAG, msg);
+        Toast toast = Toast.makeText(getApplicationContext(), msg,
+            Toast.LENGTH_LONG);
+        toast.setGravity(Gravity.BOTTOM, 0, 0);
+        toast.show();
+      }
+    }
+  }
+
+  /*
+   * Runs the identify of one layer on a scheduler worker, without geometry,
+   * and logs the features found on the UI thread. Their geometry is then
+   * fetched by a HighlightTask.
+   */
+  private class MyIdentifyTask implements Callable<IdentifyResult[]>,
+      TaskScheduler.Callback<IdentifyResult[]> {
+
+    // repeated presses on the same spot are answered from the cache
+    CachingIdentifyTask mIdentifyTask = new CachingIdentifyTask(mMapURL, IdentifyCache.getInstance());
+    final IdentifyParameters mParams;
+    final IdentifyRound mRound;
+
+    MyIdentifyTask(IdentifyParameters params, IdentifyRound round) {
+      mParams = params;
+      mRound = round;
+    }
+
+    @Override
+    public IdentifyResult[] call() {
+      LatencyRecorder.getInstance().record("highlight.tap", mRound.mPressed);
+      IdentifyResult[] mResult = null;
+      try {
+        mResult = mIdentifyTask.execute(mParams);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      return mResult;
+    }
 
-        // Highlight all features that match with results
+    @Override
+    public void onError(Exception e) {
+      onResult(null);
+    }
+
+    @Override
+    public void onResult(IdentifyResult[] results) {
+      if (results != null && results.length > 0) {
+
+        String msg;
         for (int i = 0; i < results.length; i++) {
-          Geometry geom = results[i].getGeometry();
-          
           Map<String, Object> attr = results[i].getAttributes();
           if (attr != null) {
         	  if (attr.containsKey("Name")) {
@@ -312,45 +586,144 @@ public class HighlightFeatures extends Activity {
                   Log.i(TAG, msg);                  
         	  }
           }                   
-         
-          String typeName = geom.getType().name();
-
-          //Random r = new Random();	
-          //int color = Color.rgb(r.nextInt(255), r.nextInt(255), r.nextInt(255));
-          
-          int color = Color.rgb(255, 255, 00);	// red
-
-          // Create appropriate symbol, based on geometry type
-          if (typeName.equalsIgnoreCase("point")) {
-            SimpleMarkerSymbol sms = new SimpleMarkerSymbol(color, 20, STYLE.SQUARE);
-            mHighlightGraphics[i] = new Graphic(geom, sms);
-          } else if (typeName.equalsIgnoreCase("polyline")) {
-            SimpleLineSymbol sls = new SimpleLineSymbol(color, 5);
-            mHighlightGraphics[i] = new Graphic(geom, sls);
-          } else if (typeName.equalsIgnoreCase("polygon")) {
-            SimpleFillSymbol sfs = new SimpleFillSymbol(color);
-            //sfs.setAlpha(75);
-            mHighlightGraphics[i] = new Graphic(geom, sfs);
-          }
+        }
 
-          // set the Graphic's geometry, add it to GraphicLayer and
-          // refresh the Graphic Layer
-          mGraphicsLayer.addGraphic(mHighlightGraphics[i]);
-          mClearButton.setEnabled(true);
+        // now fetch the geometry of just these features
+        if (mCurrentIdentify != null) {
+          mRound.mPending++;
+          int level = GeneralizedGeometry.levelOf(mMapView.getResolution());
+          HighlightTask highlight = new HighlightTask(mParams, results, mRound, level);
+          TaskScheduler.getInstance().submit(Priority.INTERACTIVE, mCurrentIdentify,
+              highlight, highlight);
         }
-      } else {
-    	String msg = "No features identified.";
-        Toast toast = Toast.makeText(getApplicationContext(), msg, Toast.LENGTH_LONG);
-        Log.i(TAG, msg);
       }
+      mRound.identified(results);
+    }
+  }
 
+  /*
+   * Fetches the geometry of identified features, from the geometry cache or
+   * by object id, simplifies it for the map's scale and highlights it on the
+   * UI thread. Results without an object id fall back to identifying again
+   * with geometry.
+   */
+  private class HighlightTask implements Callable<GeneralizedGeometry[]>,
+      TaskScheduler.Callback<GeneralizedGeometry[]> {
+
+    final IdentifyParameters mParams;
+    final IdentifyResult[] mResults;
+    final IdentifyRound mRound;
+    final int mLevel;
+
+    HighlightTask(IdentifyParameters params, IdentifyResult[] results, IdentifyRound round, int level) {
+      mParams = params;
+      mResults = results;
+      mRound = round;
+      mLevel = level;
     }
 
     @Override
-    protected void onPreExecute() {
-      mIdentifyTask = new IdentifyTask(mMapURL);
+    public GeneralizedGeometry[] call() throws Exception {
+      long start = LatencyRecorder.now();
+      Geometry[] geometries;
+      try {
+        geometries = fetchGeometries();
+      } finally {
+        LatencyRecorder.getInstance().record("highlight.geometry", start);
+      }
+      GeneralizedGeometry[] highlights = new GeneralizedGeometry[geometries.length];
+      for (int i = 0; i < geometries.length; i++) {
+        if (geometries[i] != null) {
+          highlights[i] = new GeneralizedGeometry(geometries[i]);
+          highlights[i].at(mLevel);
+        }
+      }
+      return highlights;
     }
 
+    private Geometry[] fetchGeometries() throws Exception {
+      Geometry[] geometries = new Geometry[mResults.length];
+
+      // results from a prefetched area already have their geometry
+      boolean complete = true;
+      for (int i = 0; i < mResults.length; i++) {
+        geometries[i] = mResults[i].getGeometry();
+        complete &= geometries[i] != null;
+      }
+      if (complete) {
+        return geometries;
+      }
+
+      long[] ids = new long[mResults.length];
+      for (int i = 0; i < mResults.length; i++) {
+        ids[i] = FeatureGeometryCache.objectIdOf(mResults[i]);
+        if (ids[i] < 0) {
+          return identifyWithGeometry();
+        }
+      }
+
+      // all results come from the one layer identified
+      String layerUrl = mMapURL + "/" + mResults[0].getLayerId();
+      String idField = FeatureGeometryCache.objectIdFieldOf(mResults[0]);
+      Map<Long, Geometry> fetched = FeatureGeometryCache.getInstance().fetch(
+          layerUrl, idField, ids, mParams.getSpatialReference());
+      for (int i = 0; i < ids.length; i++) {
+        geometries[i] = fetched.get(ids[i]);
+      }
+      return geometries;
+    }
+
+    private Geometry[] identifyWithGeometry() throws Exception {
+      IdentifyParameters params = copyOf(mParams);
+      params.setReturnGeometry(true);
+      IdentifyResult[] results = new CachingIdentifyTask(mMapURL,
+          IdentifyCache.getInstance()).execute(params);
+      Geometry[] geometries = new Geometry[results.length];
+      for (int i = 0; i < results.length; i++) {
+        geometries[i] = results[i].getGeometry();
+      }
+      return geometries;
+    }
+
+    @Override
+    public void onError(Exception e) {
+      Log.w(TAG, "Unable to fetch the highlight geometry", e);
+      mRound.finished();
+    }
+
+    @Override
+    public void onResult(GeneralizedGeometry[] highlights) {
+      long start = LatencyRecorder.now();
+
+      // only highlights the builder can draw, so the graphics line up
+      ArrayList<GeneralizedGeometry> drawn = new ArrayList<GeneralizedGeometry>();
+      for (GeneralizedGeometry highlight : highlights) {
+        if (highlight != null && mHighlightBuilder.symbolFor(highlight.original.getType()) != null) {
+          drawn.add(highlight);
+        }
+      }
+      Geometry[] geometries = new Geometry[drawn.size()];
+      for (int i = 0; i < geometries.length; i++) {
+        geometries[i] = drawn.get(i).at(mLevel);
+      }
+
+      // Highlight all features of the layer that match with results, in
+      // one batch, next to those of the layers already in
+      mHighlightGraphics = mHighlightBuilder.build(geometries);
+      if (mHighlightGraphics.length > 0) {
+        int[] ids = mGraphicsLayer.addGraphics(mHighlightGraphics);
+        for (int i = 0; i < ids.length; i++) {
+          mHighlights.put(ids[i], drawn.get(i));
+          mHighlightLevels.put(ids[i], mLevel);
+        }
+        mClearButton.setEnabled(true);
+        mRound.published();
+        // catch up with a zoom while the geometry was fetched
+        generalizeHighlights();
+      }
+      LatencyRecorder.getInstance().record("highlight.publish", start);
+      mRound.finished();
+    }
   }
 
 }
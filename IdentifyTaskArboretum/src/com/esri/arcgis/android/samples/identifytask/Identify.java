@@ -13,22 +13,26 @@
 
 package com.esri.arcgis.android.samples.identifytask;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import android.app.Activity;
-import android.app.ProgressDialog;
 import android.content.Context;
-import android.content.res.Resources;
+import android.database.DataSetObservable;
+import android.database.DataSetObserver;
 import android.graphics.Color;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
 import android.util.Log;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewGroup.LayoutParams;
+import android.view.Window;
 import android.widget.LinearLayout;
 import android.widget.ListView;
 import android.widget.TextView;
@@ -41,11 +45,18 @@ import com.esri.android.map.MapView;
 import com.esri.android.map.ags.ArcGISDynamicMapServiceLayer;
 import com.esri.android.map.ags.ArcGISFeatureLayer;
 import com.esri.android.map.event.OnSingleTapListener;
+import com.esri.arcgis.android.samples.arboretum.ArboretumLayer;
+import com.esri.arcgis.android.samples.arboretum.CachingIdentifyTask;
+import com.esri.arcgis.android.samples.arboretum.IdentifyCache;
+import com.esri.arcgis.android.samples.arboretum.LatencyRecorder;
+import com.esri.arcgis.android.samples.arboretum.LayerRegistry;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler.CancellationToken;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler.Priority;
 import com.esri.core.geometry.Envelope;
 import com.esri.core.geometry.Point;
 import com.esri.core.tasks.identify.IdentifyParameters;
 import com.esri.core.tasks.identify.IdentifyResult;
-import com.esri.core.tasks.identify.IdentifyTask;
 
 /**
  * This sample allows the user to identify data based on single tap and view the
@@ -89,55 +100,47 @@ import com.esri.core.tasks.identify.IdentifyTask;
 public class Identify extends Activity {
 	private final String TAG = "Identify";
 
+	// on-device copy of the plants layer, in the app's files directory
+	private static final String PLANTS_FILE = "plants.bin";
+	private static final long PLANTS_SYNC_INTERVAL = 24 * 60 * 60 * 1000;
+
 	// create ArcGIS objects
 	MapView mMapView = null;
+	LayerRegistry mLayers;
 	IdentifyParameters mParams = null;
 	CalloutPopupWindow mCalloutPopupWindow = null;
 	
 	String mIdentifyTaskURL = null;
 
-	// create UI objects
-	static ProgressDialog mProgressDialog;
+	// answers taps without the network once loaded; null until then
+	volatile PlantStore mPlants = null;
+
+	// cancels the remote identify the callout is waiting for
+	CancellationToken mCurrentIdentify = null;
+
+	static final String LSP = System.getProperty("line.separator");
+
+	// a remote identify waits this long for a newer tap to replace it
+	private static final long TAP_DEBOUNCE = 250;
+	final Handler mHandler = new Handler();
+	Runnable mPendingIdentify = null;
 
 	/** Called when the activity is first created. */
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
+		// progress is shown in the action bar so the map stays tappable
+		requestWindowFeature(Window.FEATURE_INDETERMINATE_PROGRESS);
 		setContentView(R.layout.main);
 		// Retrieve the map and initial extent from XML layout
 		mMapView = (MapView) findViewById(R.id.map);
 		
-		Layer layer1 = new ArcGISDynamicMapServiceLayer(	// plants on map service layer 1
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/UWBG/MapServer");
-
-		Layer layer2 = new ArcGISDynamicMapServiceLayer( 	// no plants
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/Basemaps/MapServer");
-
-		Layer layer3 = new ArcGISDynamicMapServiceLayer( 	// plants on map service layer 3
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PublicFeatures/MapServer");
-
-		Layer layer4 = new ArcGISFeatureLayer(		// plants
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PublicFeatures/MapServer/3",
-				ArcGISFeatureLayer.MODE.ONDEMAND);
-
-		Layer layer5 = new ArcGISFeatureLayer( 		// plants
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/UWBG/MapServer/1", 
-				ArcGISFeatureLayer.MODE.ONDEMAND);
-				
-		Layer layer6 = new ArcGISFeatureLayer( 
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PlantswithBGBase/MapServer/0",
-				ArcGISFeatureLayer.MODE.ONDEMAND);
-		
-		Layer layer7 = new ArcGISDynamicMapServiceLayer( 
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PlantswithBGBase/MapServer/0");
-		
-		Layer layer8 = new ArcGISDynamicMapServiceLayer( 
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/ArbPhotography/MapServer");
-		
-		mMapView.addLayer(layer3);
-		mMapView.addLayer(layer6);
-		mIdentifyTaskURL = 
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PublicFeatures/MapServer";
+		// Only the layers shown are created; see ArboretumLayer for the other
+		// arboretum services.
+		mLayers = new LayerRegistry(mMapView);
+		mLayers.enable(ArboretumLayer.PUBLIC_FEATURES);
+		mLayers.enable(ArboretumLayer.PLANTS_WITH_BG_BASE_FEATURES);
+		mIdentifyTaskURL = ArboretumLayer.PUBLIC_FEATURES.getUrl();
 		
 		// set Identify Parameters
 		mParams = new IdentifyParameters();
@@ -159,27 +162,144 @@ public class Identify extends Activity {
 				if (!mMapView.isLoaded()) {
 					return;
 				}
+				final long tapped = LatencyRecorder.now();
 
-				// Add to Identify Parameters based on tapped location
+				// Identify Parameters for the tapped location, owned by this
+				// request from now on
 				Point identifyPoint = mMapView.toMapPoint(x, y);
+				final IdentifyParameters params = snapshotParams(identifyPoint);
 
-				mParams.setGeometry(identifyPoint);
-				mParams.setSpatialReference(mMapView.getSpatialReference());
-				mParams.setMapHeight(mMapView.getHeight());
-				mParams.setMapWidth(mMapView.getWidth());
+				// a newer tap supersedes everything still pending
+				cancelIdentify();
 
-				// add the area of extent to identify parameters
-				Envelope env = new Envelope();
-				mMapView.getExtent().queryEnvelope(env);
-				mParams.setMapExtent(env);
+				// answer from the on-device plants when they are loaded
+				if (identifyLocally(params)) {
+					LatencyRecorder.getInstance().record("identify.total",
+							tapped);
+					return;
+				}
 
-				// execute the identify task off UI thread
-				MyIdentifyTask mTask = new MyIdentifyTask(identifyPoint);
-				mTask.execute(mParams);
+				final Point anchor = identifyPoint;
+				mPendingIdentify = new Runnable() {
+					@Override
+					public void run() {
+						mPendingIdentify = null;
+						startIdentify(params, anchor, tapped);
+					}
+				};
+				// only the last tap of a burst reaches the server
+				mHandler.postDelayed(mPendingIdentify, TAP_DEBOUNCE);
 			}
 
 		});
 
+		// bulk download, so it never holds up an identify
+		TaskScheduler.getInstance().submit(Priority.BACKGROUND,
+				new LoadPlantsTask(), new TaskScheduler.Callback<PlantStore>() {
+					@Override
+					public void onResult(PlantStore plants) {
+						if (plants != null) {
+							Log.i(TAG, "Synced " + plants.size() + " plants");
+							mPlants = plants;
+						}
+					}
+
+					@Override
+					public void onError(Exception e) {
+						Log.w(TAG, "Unable to load the plants", e);
+					}
+				});
+	}
+
+	/**
+	 * Returns new Identify Parameters for a tap at the point, combining the
+	 * settings in mParams with the current map. The result is not changed
+	 * after it is handed to a request.
+	 */
+	private IdentifyParameters snapshotParams(Point identifyPoint) {
+		IdentifyParameters params = new IdentifyParameters();
+		params.setLayers(mParams.getLayers().clone());
+		params.setTolerance(mParams.getTolerance());
+		params.setDPI(mParams.getDPI());
+		params.setLayerMode(mParams.getLayerMode());
+		// the callout only shows attributes, so leave out the geometry
+		params.setReturnGeometry(false);
+
+		params.setGeometry(identifyPoint);
+		params.setSpatialReference(mMapView.getSpatialReference());
+		params.setMapHeight(mMapView.getHeight());
+		params.setMapWidth(mMapView.getWidth());
+
+		// add the area of extent to identify parameters
+		Envelope env = new Envelope();
+		mMapView.getExtent().queryEnvelope(env);
+		params.setMapExtent(env);
+		return params;
+	}
+
+	/**
+	 * Runs a remote identify whose results replace the callout, unless a
+	 * newer tap comes first.
+	 */
+	private void startIdentify(IdentifyParameters params, Point anchor,
+			long tapped) {
+		mCurrentIdentify = new CancellationToken();
+		// show progress while working off UI thread
+		setProgressBarIndeterminateVisibility(true);
+		// interactive work starts ahead of the plants sync
+		TaskScheduler.getInstance().submit(Priority.INTERACTIVE,
+				mCurrentIdentify, new MyIdentifyTask(params, tapped),
+				new IdentifyCallback(mCurrentIdentify, anchor, tapped));
+	}
+
+	/**
+	 * Drops a debounced tap and cancels the remote identify in flight.
+	 */
+	private void cancelIdentify() {
+		if (mPendingIdentify != null) {
+			mHandler.removeCallbacks(mPendingIdentify);
+			mPendingIdentify = null;
+		}
+		if (mCurrentIdentify != null) {
+			mCurrentIdentify.cancel();
+			mCurrentIdentify = null;
+		}
+		setProgressBarIndeterminateVisibility(false);
+	}
+
+	/**
+	 * Identifies the plants around the tap from the on-device store, using
+	 * the same tolerance as the remote identify. Returns false if the store
+	 * is not loaded or does not match the map.
+	 */
+	private boolean identifyLocally(IdentifyParameters params) {
+		PlantStore plants = mPlants;
+		if (plants == null
+				|| plants.wkid != mMapView.getSpatialReference().getID()) {
+			return false;
+		}
+		Point identifyPoint = (Point) params.getGeometry();
+		double resolution = params.getMapExtent().getWidth()
+				/ params.getMapWidth();
+		long start = LatencyRecorder.now();
+		List<IdentifyResult> results = plants.identify(identifyPoint,
+				params.getTolerance() * resolution);
+		LatencyRecorder.getInstance().record("identify.local", start);
+		Log.i(TAG, "identifyLocally()-length of results: " + results.size());
+		start = LatencyRecorder.now();
+		showIdentifyResults(results, identifyPoint);
+		LatencyRecorder.getInstance().record("identify.publish", start);
+		return true;
+	}
+
+	private void showIdentifyResults(List<IdentifyResult> resultList,
+			Point anchor) {
+		if (mCalloutPopupWindow == null) {
+			mCalloutPopupWindow = new CalloutPopupWindow(createIdentifyContent(resultList));
+		} else {
+			mCalloutPopupWindow.setContent(createIdentifyContent(resultList));
+		}
+		mCalloutPopupWindow.showCallout(mMapView, anchor, 0, 0);
 	}
 
 	private ViewGroup createIdentifyContent(final List<IdentifyResult> results) {
@@ -221,41 +341,103 @@ public class Identify extends Activity {
 	 * 
 	 */
 	public class MyIdentifyAdapter extends IdentifyResultSpinnerAdapter {
-		String m_show = null;
+		// rows shown at first and added each time the list is scrolled to
+		// its end
+		static final int PAGE_SIZE = 50;
+
 		List<IdentifyResult> resultList;
-		int currentDataViewed = -1;
 		Context m_context;
 
+		// display strings, filled in a page at a time
+		final String[] mLabels;
+		int mVisibleCount;
+		final DataSetObservable mObservers = new DataSetObservable();
+		boolean mGrowPending = false;
+
 		public MyIdentifyAdapter(Context context, List<IdentifyResult> results) {
 			super(context, results);
 			this.resultList = results;
 			this.m_context = context;
+			mLabels = new String[results.size()];
+			showMore();
+		}
+
+		@Override
+		public int getCount() {
+			return mVisibleCount;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return mVisibleCount == 0;
+		}
+
+		@Override
+		public void registerDataSetObserver(DataSetObserver observer) {
+			super.registerDataSetObserver(observer);
+			mObservers.registerObserver(observer);
+		}
+
+		@Override
+		public void unregisterDataSetObserver(DataSetObserver observer) {
+			super.unregisterDataSetObserver(observer);
+			mObservers.unregisterObserver(observer);
 		}
 
 		// Get a TextView that displays identify results in the callout.
 		@Override
 		public View getView(int position, View convertView, ViewGroup parent) {
-			String LSP = System.getProperty("line.separator");
-			StringBuilder outputVal = new StringBuilder();
+			return bindRow(position, convertView);
+		}
 
-			// Resource Object to access the Resource fields
-			Resources res = getResources();
+		@Override
+		public View getDropDownView(int position, View convertView,
+				ViewGroup parent) {
+			// reaching the last row loads the next page, after this layout
+			if (position == mVisibleCount - 1
+					&& mVisibleCount < mLabels.length && !mGrowPending) {
+				mGrowPending = true;
+				mHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						mGrowPending = false;
+						showMore();
+						mObservers.notifyChanged();
+					}
+				});
+			}
+			return bindRow(position, convertView);
+		}
 
-			// Get Name attribute from identify results
-			IdentifyResult curResult = this.resultList.get(position);
-			
-			outputVal.append("Plant: " + curResult.getValue());
-			outputVal.append(LSP);
+		/*
+		 * Makes the next page of results visible, building its display
+		 * strings once.
+		 */
+		void showMore() {
+			int end = Math.min(mVisibleCount + PAGE_SIZE, mLabels.length);
+			for (int i = mVisibleCount; i < end; i++) {
+				// Get Name attribute from identify results
+				mLabels[i] = "Plant: " + resultList.get(i).getValue() + LSP;
+			}
+			mVisibleCount = end;
+		}
 
-			// Create a TextView to write identify results
+		/*
+		 * Shows the label in a recycled row if there is one.
+		 */
+		private TextView bindRow(int position, View convertView) {
 			TextView txtView;
-			txtView = new TextView(this.m_context);
-			txtView.setText(outputVal);
-			txtView.setTextColor(Color.BLACK);
-			txtView.setLayoutParams(new ListView.LayoutParams(
-					LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
-			txtView.setGravity(Gravity.CENTER_VERTICAL);
-
+			if (convertView instanceof TextView) {
+				txtView = (TextView) convertView;
+			} else {
+				// Create a TextView to write identify results
+				txtView = new TextView(this.m_context);
+				txtView.setTextColor(Color.BLACK);
+				txtView.setLayoutParams(new ListView.LayoutParams(
+						LayoutParams.MATCH_PARENT, LayoutParams.WRAP_CONTENT));
+				txtView.setGravity(Gravity.CENTER_VERTICAL);
+			}
+			txtView.setText(mLabels[position]);
 			return txtView;
 		}
 	}
@@ -263,6 +445,8 @@ public class Identify extends Activity {
 	@Override
 	protected void onPause() {
 		super.onPause();
+		cancelIdentify();
+		LatencyRecorder.getInstance().export(this);
 		mMapView.pause();
 	}
 
@@ -272,41 +456,38 @@ public class Identify extends Activity {
 		mMapView.unpause();
 	}
 
-	private class MyIdentifyTask extends
-			AsyncTask<IdentifyParameters, Void, IdentifyResult[]> {
+	private class MyIdentifyTask implements Callable<IdentifyResult[]> {
 
 //				IdentifyTask task = new IdentifyTask(Identify.this.getResources()
 //						.getString(R.string.identify_task_url_for_avghouseholdsize));
 
-				IdentifyTask task = new IdentifyTask(mIdentifyTaskURL);
+				// repeated taps on the same spot are answered from the cache
+				CachingIdentifyTask task = new CachingIdentifyTask(
+						mIdentifyTaskURL, IdentifyCache.getInstance());
 				
 				IdentifyResult[] M_Result;
 
-		Point mAnchor;
+		// the parameters of this tap, see snapshotParams()
+		final IdentifyParameters mSnapshot;
+		final long mTapped;
 
-		MyIdentifyTask(Point anchorPoint) {
-			mAnchor = anchorPoint;
+		MyIdentifyTask(IdentifyParameters params, long tapped) {
+			mSnapshot = params;
+			mTapped = tapped;
 		}
 
 		@Override
-		protected void onPreExecute() {
-			// create dialog while working off UI thread
-			mProgressDialog = ProgressDialog.show(Identify.this, "Identify Task",
-					"Identify query ...");
-
-		}
-
-		protected IdentifyResult[] doInBackground(IdentifyParameters... params) {
-			Log.i(TAG, "doInBackground()");
-
-			// check that you have the identify parameters
-			if (params != null && params.length > 0) {
-				IdentifyParameters mParams = params[0];
+		public IdentifyResult[] call() {
+			Log.i(TAG, "call()");
+			// debounce and queueing before the request is made
+			LatencyRecorder.getInstance().record("identify.tap", mTapped);
 
+			// check that you are still wanted
+			if (!Thread.currentThread().isInterrupted()) {
 				try {
 					// Run IdentifyTask with Identify Parameters
 
-					M_Result = task.execute(mParams);
+					M_Result = task.execute(mSnapshot);
 
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -315,13 +496,41 @@ public class Identify extends Activity {
 
 			return M_Result;
 		}
+	}
+
+	/*
+	 * Shows the results of a remote identify, called on the UI thread.
+	 */
+	private class IdentifyCallback implements
+			TaskScheduler.Callback<IdentifyResult[]> {
+
+		final CancellationToken mToken;
+		Point mAnchor;
+		final long mTapped;
+
+		IdentifyCallback(CancellationToken token, Point anchorPoint,
+				long tapped) {
+			mToken = token;
+			mAnchor = anchorPoint;
+			mTapped = tapped;
+		}
 
 		@Override
-		protected void onPostExecute(IdentifyResult[] results) {
+		public void onError(Exception e) {
+			onResult(null);
+		}
+
+		@Override
+		public void onResult(IdentifyResult[] results) {
 
-			// dismiss dialog
-			if (mProgressDialog.isShowing()) {
-				mProgressDialog.dismiss();
+			// only the latest tap may change the callout
+			if (mCurrentIdentify != mToken) {
+				return;
+			}
+			mCurrentIdentify = null;
+			setProgressBarIndeterminateVisibility(false);
+			if (results == null) {
+				return;
 			}
 
 			ArrayList<IdentifyResult> resultList = new ArrayList<IdentifyResult>();
@@ -349,12 +558,50 @@ public class Identify extends Activity {
 				// a value for the display field of the identified feature
 				// a Map of pairs for the identified feature				
 			}
-			if (mCalloutPopupWindow == null) {
-				mCalloutPopupWindow = new CalloutPopupWindow(createIdentifyContent(resultList));
-			} else {
-				mCalloutPopupWindow.setContent(createIdentifyContent(resultList));
+			long start = LatencyRecorder.now();
+			showIdentifyResults(resultList, mAnchor);
+			LatencyRecorder recorder = LatencyRecorder.getInstance();
+			recorder.record("identify.publish", start);
+			recorder.record("identify.total", mTapped);
+		}
+	}
+
+	/**
+	 * Loads the plants layer from the device, then brings it up to date with
+	 * the server if the last sync is more than a day old. The first launch
+	 * downloads the whole layer. Taps are identified remotely until a store
+	 * is available.
+	 */
+	private class LoadPlantsTask implements Callable<PlantStore> {
+
+		@Override
+		public PlantStore call() {
+			File file = new File(getFilesDir(), PLANTS_FILE);
+			PlantStore plants = null;
+			if (file.isFile()) {
+				try {
+					plants = PlantStore.read(file);
+					// taps use the stored copy while the sync runs
+					mPlants = plants;
+				} catch (IOException e) {
+					Log.w(TAG, "Unable to read " + file, e);
+				}
+			}
+			if (plants != null
+					&& System.currentTimeMillis() - plants.syncedAt < PLANTS_SYNC_INTERVAL) {
+				return null;
+			}
+			try {
+				PlantStore synced = new PlantSync(
+						ArboretumLayer.PUBLIC_FEATURES_PLANTS.getUrl())
+						.sync(plants);
+				// the new store is only used once it is safely on disk
+				synced.write(file);
+				return synced;
+			} catch (IOException e) {
+				Log.w(TAG, "Unable to sync the plants", e);
+				return null;
 			}
-			mCalloutPopupWindow.showCallout(mMapView, mAnchor, 0, 0);
 		}
 	}
 	 private void addLayers(int[] layers) {  // not used - is crap
@@ -0,0 +1,65 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.identifytask;
+
+import java.util.Arrays;
+
+/**
+ * Description of the feature layer a {@link PlantStore} copies, as read from
+ * the layer's REST endpoint.
+ *
+ */
+final class PlantLayer {
+
+	final int id;
+	final String name;
+	final String displayField;
+	final String objectIdField;
+	// null if the layer does not record edit dates
+	final String editDateField;
+	final String[] fields;
+
+	PlantLayer(int id, String name, String displayField, String objectIdField,
+			String editDateField, String[] fields) {
+		this.id = id;
+		this.name = name;
+		this.displayField = displayField;
+		this.objectIdField = objectIdField;
+		this.editDateField = editDateField;
+		this.fields = fields;
+	}
+
+	/**
+	 * Returns the position of the field, ignoring case, or -1.
+	 */
+	int indexOf(String field) {
+		if (field != null) {
+			for (int i = 0; i < fields.length; i++) {
+				if (fields[i].equalsIgnoreCase(field)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns true if features of the other layer can be stored alongside
+	 * features of this one.
+	 */
+	boolean hasSameSchema(PlantLayer other) {
+		return id == other.id && Arrays.equals(fields, other.fields);
+	}
+
+}
@@ -0,0 +1,300 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.identifytask;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+
+import com.esri.arcgis.android.samples.arboretum.PointGridIndex;
+import com.esri.core.geometry.Point;
+import com.esri.core.tasks.identify.IdentifyResult;
+
+/**
+ * Immutable on-device copy of the arboretum plants layer, answering identify
+ * requests without the network.
+ *
+ * Every feature keeps its object id, its location and its attribute values as
+ * text, the way an identify operation reports them. Taps are resolved through
+ * a {@link PointGridIndex} and turned into the same IdentifyResult objects a
+ * remote identify would return. Changes from a {@link PlantSync} produce a
+ * new store, so readers never see a partly applied sync.
+ *
+ */
+final class PlantStore {
+
+	// Bumped whenever the layout of the store file changes.
+	private static final int FILE_VERSION = 2;
+
+	// Identify reports missing attribute values as this text.
+	private static final String NULL_VALUE = "Null";
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	/** One feature of the layer. */
+	static final class Feature {
+		final int objectId;
+		final double x;
+		final double y;
+		// attribute values, parallel to the layer's fields
+		final String[] values;
+
+		Feature(int objectId, double x, double y, String[] values) {
+			this.objectId = objectId;
+			this.x = x;
+			this.y = y;
+			this.values = values;
+		}
+	}
+
+	final PlantLayer layer;
+	final int wkid;
+	// newest edit date of the features, in milliseconds; 0 if unknown
+	final long watermark;
+	// when the store was last synced with the server
+	final long syncedAt;
+
+	private final Feature[] mFeatures;
+	private final int mDisplayColumn;
+	private final PointGridIndex mIndex;
+
+	/**
+	 * The feature array is owned by the store once passed in.
+	 */
+	PlantStore(PlantLayer layer, int wkid, Feature[] features, long watermark,
+			long syncedAt) {
+		this.layer = layer;
+		this.wkid = wkid;
+		this.watermark = watermark;
+		this.syncedAt = syncedAt;
+		mFeatures = features;
+		mDisplayColumn = layer.indexOf(layer.displayField);
+
+		double[] xs = new double[features.length];
+		double[] ys = new double[features.length];
+		for (int i = 0; i < features.length; i++) {
+			xs[i] = features[i].x;
+			ys[i] = features[i].y;
+		}
+		mIndex = new PointGridIndex(xs, ys);
+	}
+
+	int size() {
+		return mFeatures.length;
+	}
+
+	/**
+	 * Returns the object ids of all the features.
+	 */
+	int[] objectIds() {
+		int[] ids = new int[mFeatures.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = mFeatures[i].objectId;
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns a new store without the removed features and with the added
+	 * ones. A feature that is both removed and added is replaced.
+	 */
+	PlantStore apply(Set<Integer> removed, Collection<Feature> added,
+			long newWatermark, long newSyncedAt) {
+		List<Feature> features = new ArrayList<Feature>(mFeatures.length
+				+ added.size());
+		for (Feature feature : mFeatures) {
+			if (!removed.contains(Integer.valueOf(feature.objectId))) {
+				features.add(feature);
+			}
+		}
+		features.addAll(added);
+		return new PlantStore(layer, wkid, features
+				.toArray(new Feature[features.size()]), newWatermark,
+				newSyncedAt);
+	}
+
+	/**
+	 * Returns the plants within radius map units of the point, nearest first,
+	 * as identify results.
+	 */
+	List<IdentifyResult> identify(Point point, double radius) {
+		int[] hits = mIndex.within(point.getX(), point.getY(), radius);
+		List<IdentifyResult> results = new ArrayList<IdentifyResult>(
+				hits.length);
+		try {
+			for (int feature : hits) {
+				results.add(toResult(mFeatures[feature]));
+			}
+		} catch (IOException e) {
+			// the JSON is generated here, so this is a programming error
+			throw new IllegalStateException(e);
+		}
+		return results;
+	}
+
+	/*
+	 * IdentifyResult can only be created from JSON, so the feature is written
+	 * the way the identify operation reports it and parsed back.
+	 */
+	private IdentifyResult toResult(Feature feature) throws IOException {
+		String[] fields = layer.fields;
+		String value = NULL_VALUE;
+		if (mDisplayColumn >= 0 && feature.values[mDisplayColumn] != null) {
+			value = feature.values[mDisplayColumn];
+		}
+
+		StringWriter json = new StringWriter();
+		JsonGenerator generator = JSON_FACTORY.createJsonGenerator(json);
+		generator.writeStartObject();
+		generator.writeNumberField("layerId", layer.id);
+		generator.writeStringField("layerName", layer.name);
+		generator.writeStringField("displayFieldName", layer.displayField);
+		generator.writeStringField("value", value);
+		generator.writeObjectFieldStart("attributes");
+		for (int i = 0; i < fields.length; i++) {
+			String attribute = feature.values[i];
+			generator.writeStringField(fields[i], attribute == null ? NULL_VALUE
+					: attribute);
+		}
+		generator.writeEndObject();
+		generator.writeStringField("geometryType", "esriGeometryPoint");
+		generator.writeObjectFieldStart("geometry");
+		generator.writeNumberField("x", feature.x);
+		generator.writeNumberField("y", feature.y);
+		generator.writeEndObject();
+		generator.writeEndObject();
+		generator.close();
+
+		JsonParser parser = JSON_FACTORY.createJsonParser(json.toString());
+		try {
+			parser.nextToken();
+			return IdentifyResult.fromJson(parser);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 * Reads a store written by {@link #write(File)}.
+	 */
+	static PlantStore read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		try {
+			if (in.readInt() != FILE_VERSION) {
+				throw new IOException("Unknown version of " + file);
+			}
+			int layerId = in.readInt();
+			String name = in.readUTF();
+			String displayField = in.readUTF();
+			String objectIdField = in.readUTF();
+			String editDateField = readString(in);
+			String[] fields = new String[in.readInt()];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = in.readUTF();
+			}
+			PlantLayer layer = new PlantLayer(layerId, name, displayField,
+					objectIdField, editDateField, fields);
+			int wkid = in.readInt();
+			long watermark = in.readLong();
+			long syncedAt = in.readLong();
+
+			Feature[] features = new Feature[in.readInt()];
+			for (int f = 0; f < features.length; f++) {
+				int objectId = in.readInt();
+				double x = in.readDouble();
+				double y = in.readDouble();
+				String[] values = new String[fields.length];
+				for (int i = 0; i < fields.length; i++) {
+					values[i] = readString(in);
+				}
+				features[f] = new Feature(objectId, x, y, values);
+			}
+			return new PlantStore(layer, wkid, features, watermark, syncedAt);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Writes the store, replacing the file only once it is complete.
+	 */
+	void write(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(temp)));
+		try {
+			out.writeInt(FILE_VERSION);
+			out.writeInt(layer.id);
+			out.writeUTF(layer.name);
+			out.writeUTF(layer.displayField);
+			out.writeUTF(layer.objectIdField);
+			writeString(out, layer.editDateField);
+			out.writeInt(layer.fields.length);
+			for (String field : layer.fields) {
+				out.writeUTF(field);
+			}
+			out.writeInt(wkid);
+			out.writeLong(watermark);
+			out.writeLong(syncedAt);
+
+			out.writeInt(mFeatures.length);
+			for (Feature feature : mFeatures) {
+				out.writeInt(feature.objectId);
+				out.writeDouble(feature.x);
+				out.writeDouble(feature.y);
+				for (String value : feature.values) {
+					writeString(out, value);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			temp.delete();
+			throw new IOException("Unable to replace " + file);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+}
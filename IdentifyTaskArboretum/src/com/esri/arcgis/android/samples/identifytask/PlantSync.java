@@ -0,0 +1,420 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.identifytask;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import android.util.Log;
+
+/**
+ * Keeps a {@link PlantStore} in step with a point feature layer on its map
+ * service REST endpoint, downloading only what changed since the last sync.
+ *
+ * The full list of object ids is cheap to fetch, so it is compared with the
+ * local ids to find added and deleted features. If the layer records edit
+ * dates, features edited since the store's watermark are fetched again too.
+ * The features are queried in batches of ids, a few batches at a time, and
+ * the changes are only applied once every batch has arrived. A failed or
+ * cancelled sync leaves the store as it was.
+ *
+ */
+class PlantSync {
+
+	private static final String TAG = "PlantSync";
+
+	// Kept below the default maxRecordCount of ArcGIS Server.
+	private static final int BATCH_SIZE = 500;
+
+	// Number of batches queried at the same time.
+	private static final int MAX_PARALLEL = 3;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final String mLayerUrl;
+
+	/**
+	 * @param layerUrl
+	 *            URL of the layer, for example .../MapServer/3
+	 */
+	PlantSync(String layerUrl) {
+		mLayerUrl = layerUrl;
+	}
+
+	/**
+	 * Returns a store holding the current features of the layer. Only the
+	 * changes are downloaded when the previous store has the same schema;
+	 * otherwise, or if previous is null, every feature is. Must not be called
+	 * on the UI thread.
+	 */
+	PlantStore sync(PlantStore previous) throws IOException {
+		PlantLayer layer = readLayer();
+		int[] remoteIds = readObjectIds("1=1");
+		long now = System.currentTimeMillis();
+
+		if (previous == null || !previous.layer.hasSameSchema(layer)) {
+			Batch all = fetch(layer, remoteIds);
+			Log.i(TAG, "Downloaded " + all.features.size() + " features");
+			return new PlantStore(layer, all.wkid, all.features
+					.toArray(new PlantStore.Feature[all.features.size()]),
+					all.newestEdit, now);
+		}
+
+		Set<Integer> local = new HashSet<Integer>();
+		for (int id : previous.objectIds()) {
+			local.add(Integer.valueOf(id));
+		}
+		Set<Integer> remote = new HashSet<Integer>();
+		Set<Integer> fetch = new HashSet<Integer>();
+		for (int id : remoteIds) {
+			Integer key = Integer.valueOf(id);
+			remote.add(key);
+			if (!local.contains(key)) {
+				fetch.add(key);
+			}
+		}
+		Set<Integer> removed = new HashSet<Integer>();
+		for (Integer id : local) {
+			if (!remote.contains(id)) {
+				removed.add(id);
+			}
+		}
+		int added = fetch.size();
+		int deleted = removed.size();
+
+		if (layer.editDateField != null && previous.watermark > 0) {
+			for (int id : readObjectIds(layer.editDateField + " >= "
+					+ timestamp(previous.watermark))) {
+				Integer key = Integer.valueOf(id);
+				// an edited feature is replaced
+				if (local.contains(key)) {
+					fetch.add(key);
+					removed.add(key);
+				}
+			}
+		} else {
+			Log.w(TAG, "No edit dates; only added and deleted features sync");
+		}
+
+		int[] ids = new int[fetch.size()];
+		int i = 0;
+		for (Integer id : fetch) {
+			ids[i++] = id.intValue();
+		}
+		Batch changes = fetch(layer, ids);
+		Log.i(TAG, "Added " + added + ", deleted " + deleted + ", updated "
+				+ (fetch.size() - added));
+		return previous.apply(removed, changes.features, Math.max(
+				previous.watermark, changes.newestEdit), now);
+	}
+
+	/*
+	 * Queries the features with the given ids, MAX_PARALLEL batches at a
+	 * time, and returns them all or throws.
+	 */
+	private Batch fetch(final PlantLayer layer, int[] ids) throws IOException {
+		List<Callable<Batch>> batches = new ArrayList<Callable<Batch>>();
+		for (int start = 0; start < ids.length; start += BATCH_SIZE) {
+			final StringBuilder list = new StringBuilder();
+			for (int i = start; i < Math.min(start + BATCH_SIZE, ids.length); i++) {
+				if (list.length() > 0) {
+					list.append(',');
+				}
+				list.append(ids[i]);
+			}
+			batches.add(new Callable<Batch>() {
+				@Override
+				public Batch call() throws IOException {
+					return readFeatures(layer, list.toString());
+				}
+			});
+		}
+
+		Batch result = new Batch();
+		if (batches.isEmpty()) {
+			return result;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(
+				MAX_PARALLEL, batches.size()));
+		try {
+			List<Future<Batch>> futures = new ArrayList<Future<Batch>>();
+			for (Callable<Batch> batch : batches) {
+				futures.add(executor.submit(batch));
+			}
+			for (Future<Batch> future : futures) {
+				Batch batch = future.get();
+				result.features.addAll(batch.features);
+				result.wkid = batch.wkid;
+				result.newestEdit = Math.max(result.newestEdit,
+						batch.newestEdit);
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Sync cancelled");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			// stops the batches still running after a failure
+			executor.shutdownNow();
+		}
+	}
+
+	private PlantLayer readLayer() throws IOException {
+		JsonParser parser = open(mLayerUrl + "?f=json");
+		try {
+			int id = 0;
+			String name = "";
+			String displayField = null;
+			String objectIdField = null;
+			String editDateField = null;
+			List<String> fields = new ArrayList<String>();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String key = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("id".equals(key)) {
+					id = parser.getIntValue();
+				} else if ("name".equals(key)) {
+					name = parser.getText();
+				} else if ("displayField".equals(key)) {
+					displayField = parser.getText();
+				} else if ("fields".equals(key)
+						&& value == JsonToken.START_ARRAY) {
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						Map<String, String> field = readStrings(parser);
+						fields.add(field.get("name"));
+						if ("esriFieldTypeOID".equals(field.get("type"))) {
+							objectIdField = field.get("name");
+						}
+					}
+				} else if ("editFieldsInfo".equals(key)
+						&& value == JsonToken.START_OBJECT) {
+					editDateField = readStrings(parser).get("editDateField");
+				} else {
+					parser.skipChildren();
+				}
+			}
+			if (fields.isEmpty() || fields.contains(null)) {
+				throw new IOException("No fields in " + mLayerUrl);
+			}
+			if (objectIdField == null) {
+				objectIdField = "OBJECTID";
+			}
+			if (displayField == null) {
+				displayField = fields.get(0);
+			}
+			return new PlantLayer(id, name, displayField, objectIdField,
+					editDateField, fields.toArray(new String[fields.size()]));
+		} finally {
+			parser.close();
+		}
+	}
+
+	private int[] readObjectIds(String where) throws IOException {
+		JsonParser parser = open(mLayerUrl + "/query?where="
+				+ URLEncoder.encode(where, "UTF-8")
+				+ "&returnIdsOnly=true&f=json");
+		try {
+			int[] ids = new int[0];
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("objectIds".equals(name) && value == JsonToken.START_ARRAY) {
+					List<Integer> list = new ArrayList<Integer>();
+					while (parser.nextToken() != JsonToken.END_ARRAY) {
+						list.add(Integer.valueOf(parser.getIntValue()));
+					}
+					ids = new int[list.size()];
+					for (int i = 0; i < ids.length; i++) {
+						ids[i] = list.get(i).intValue();
+					}
+				} else if ("error".equals(name)) {
+					throw new IOException("Query failed on " + mLayerUrl);
+				} else {
+					parser.skipChildren();
+				}
+			}
+			return ids;
+		} finally {
+			parser.close();
+		}
+	}
+
+	private Batch readFeatures(PlantLayer layer, String objectIds)
+			throws IOException {
+		JsonParser parser = open(mLayerUrl + "/query?objectIds=" + objectIds
+				+ "&outFields=*&returnGeometry=true&f=json");
+		try {
+			Batch batch = new Batch();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				if ("spatialReference".equals(name)
+						&& value == JsonToken.START_OBJECT) {
+					String wkid = readStrings(parser).get("wkid");
+					if (wkid != null) {
+						batch.wkid = Integer.parseInt(wkid);
+					}
+				} else if ("features".equals(name)
+						&& value == JsonToken.START_ARRAY) {
+					while (parser.nextToken() == JsonToken.START_OBJECT) {
+						readFeature(parser, layer, batch);
+					}
+				} else if ("error".equals(name)) {
+					throw new IOException("Query failed on " + mLayerUrl);
+				} else {
+					parser.skipChildren();
+				}
+			}
+			return batch;
+		} catch (NumberFormatException e) {
+			throw new IOException("Bad feature from " + mLayerUrl, e);
+		} finally {
+			parser.close();
+		}
+	}
+
+	/*
+	 * Reads one feature into the batch, the parser being positioned on its
+	 * START_OBJECT token. Features without a point location are skipped.
+	 */
+	private static void readFeature(JsonParser parser, PlantLayer layer,
+			Batch batch) throws IOException {
+		Map<String, String> attributes = null;
+		Map<String, String> geometry = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("attributes".equals(name) && value == JsonToken.START_OBJECT) {
+				attributes = readStrings(parser);
+			} else if ("geometry".equals(name)
+					&& value == JsonToken.START_OBJECT) {
+				geometry = readStrings(parser);
+			} else {
+				parser.skipChildren();
+			}
+		}
+		if (attributes == null || geometry == null) {
+			return;
+		}
+		String objectId = attributes.get(layer.objectIdField);
+		double x = parseCoordinate(geometry.get("x"));
+		double y = parseCoordinate(geometry.get("y"));
+		// empty points have "NaN" coordinates
+		if (objectId == null || Double.isNaN(x) || Double.isNaN(y)) {
+			return;
+		}
+
+		String[] values = new String[layer.fields.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = attributes.get(layer.fields[i]);
+		}
+		batch.features.add(new PlantStore.Feature(Integer.parseInt(objectId),
+				x, y, values));
+		if (layer.editDateField != null) {
+			String edited = attributes.get(layer.editDateField);
+			if (edited != null) {
+				batch.newestEdit = Math.max(batch.newestEdit, Long
+						.parseLong(edited));
+			}
+		}
+	}
+
+	/*
+	 * Reads a flat object of scalar values as text, the parser being
+	 * positioned on its START_OBJECT token. Nested values are skipped and
+	 * nulls are kept as null.
+	 */
+	private static Map<String, String> readStrings(JsonParser parser)
+			throws IOException {
+		Map<String, String> values = new HashMap<String, String>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String key = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if (value == JsonToken.START_OBJECT
+					|| value == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+			} else {
+				values.put(key, value == JsonToken.VALUE_NULL ? null : parser
+						.getText());
+			}
+		}
+		return values;
+	}
+
+	private static double parseCoordinate(String text) {
+		try {
+			return text == null ? Double.NaN : Double.parseDouble(text);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/*
+	 * Formats a time as a standardized SQL timestamp literal in UTC, rounded
+	 * down to the second.
+	 */
+	private static String timestamp(long millis) {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss",
+				Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return "timestamp '" + format.format(new Date(millis)) + "'";
+	}
+
+	private static JsonParser open(String url) throws IOException {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedIOException("Sync cancelled");
+		}
+		JsonParser parser = JSON_FACTORY.createJsonParser(new URL(url)
+				.openConnection().getInputStream());
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			parser.close();
+			throw new IOException("Unexpected response from " + url);
+		}
+		return parser;
+	}
+
+	/** Features read from one or more queries. */
+	private static class Batch {
+		final List<PlantStore.Feature> features = new ArrayList<PlantStore.Feature>();
+		int wkid;
+		long newestEdit;
+	}
+
+}
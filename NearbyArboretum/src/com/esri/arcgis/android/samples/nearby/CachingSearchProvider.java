@@ -0,0 +1,58 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.io.IOException;
+import java.util.List;
+
+import android.util.Log;
+
+/**
+ * Puts a {@link LocalSearchCache} in front of another provider. The search
+ * location is snapped to the center of its cache cell before the delegate is
+ * called, so every search from the same cell is answered by the same entry.
+ *
+ */
+class CachingSearchProvider implements LocalSearchProvider {
+
+	private static final String TAG = "CachingSearchProvider";
+
+	private final LocalSearchProvider mDelegate;
+	private final LocalSearchCache mCache;
+
+	CachingSearchProvider(LocalSearchProvider delegate, LocalSearchCache cache) {
+		mDelegate = delegate;
+		mCache = cache;
+	}
+
+	@Override
+	public List<PointOfInterest> search(String criteria, double latitude,
+			double longitude, double radiusMiles) throws IOException {
+		String key = mCache.keyFor(criteria, latitude, longitude);
+
+		// a cached answer is returned without touching the network
+		List<PointOfInterest> results = mCache.get(key);
+		if (results != null) {
+			Log.i(TAG, "Hit for " + key + ": " + mCache);
+			return results;
+		}
+
+		results = mDelegate.search(criteria, mCache.snapLatitude(latitude),
+				mCache.snapLongitude(latitude, longitude), radiusMiles);
+		mCache.put(key, results);
+		Log.i(TAG, "Miss for " + key + ": " + mCache);
+		return results;
+	}
+
+}
@@ -0,0 +1,142 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+/**
+ * Pure Java Lambert Conformal Conic projection with two standard parallels on
+ * the GRS80 ellipsoid, following Snyder, "Map Projections - A Working Manual"
+ * (USGS Professional Paper 1395), pages 107-109.
+ *
+ * Like GeometryEngine.project without a datum transformation, geographic
+ * coordinates are used as-is; the sub-meter difference between WGS84 and
+ * NAD83 is not applied.
+ *
+ */
+final class LambertConformalConic {
+
+	// Meters per US survey foot.
+	static final double US_FOOT = 1200.0 / 3937.0;
+
+	// GRS80 ellipsoid
+	private static final double A = 6378137.0;
+	private static final double F = 1 / 298.257222101;
+	private static final double E = Math.sqrt(2 * F - F * F);
+
+	/**
+	 * NAD83 / Washington North, US survey feet (WKID 2285), used by the
+	 * arboretum map services. Declared after the ellipsoid constants it
+	 * depends on.
+	 */
+	static final LambertConformalConic WASHINGTON_NORTH_FTUS = new LambertConformalConic(
+			48.0 + 44.0 / 60.0, 47.5, 47.0, -(120.0 + 50.0 / 60.0),
+			500000.0, 0.0, US_FOOT);
+
+	private final double mLon0;
+	private final double mN;
+	private final double mAF;
+	private final double mRho0;
+	private final double mFalseEasting;
+	private final double mFalseNorthing;
+	private final double mUnit;
+
+	/**
+	 * @param lat1
+	 *            first standard parallel, degrees
+	 * @param lat2
+	 *            second standard parallel, degrees
+	 * @param lat0
+	 *            latitude of origin, degrees
+	 * @param lon0
+	 *            central meridian, degrees
+	 * @param falseEasting
+	 *            false easting, meters
+	 * @param falseNorthing
+	 *            false northing, meters
+	 * @param unit
+	 *            meters per unit of the projected coordinates
+	 */
+	LambertConformalConic(double lat1, double lat2, double lat0, double lon0,
+			double falseEasting, double falseNorthing, double unit) {
+		double phi1 = Math.toRadians(lat1);
+		double phi2 = Math.toRadians(lat2);
+		double m1 = m(phi1);
+		double m2 = m(phi2);
+		double t1 = t(phi1);
+		double t2 = t(phi2);
+		mN = (Math.log(m1) - Math.log(m2)) / (Math.log(t1) - Math.log(t2));
+		mAF = A * m1 / (mN * Math.pow(t1, mN));
+		mRho0 = mAF * Math.pow(t(Math.toRadians(lat0)), mN);
+		mLon0 = Math.toRadians(lon0);
+		mFalseEasting = falseEasting;
+		mFalseNorthing = falseNorthing;
+		mUnit = unit;
+	}
+
+	/**
+	 * Projects interleaved longitude, latitude pairs in degrees to x, y pairs,
+	 * in place.
+	 */
+	void forward(double[] coords, int offset, int count) {
+		for (int i = offset, end = offset + 2 * count; i < end; i += 2) {
+			double lambda = Math.toRadians(coords[i]);
+			double phi = Math.toRadians(coords[i + 1]);
+			double rho = mAF * Math.pow(t(phi), mN);
+			double theta = mN * (lambda - mLon0);
+			coords[i] = (mFalseEasting + rho * Math.sin(theta)) / mUnit;
+			coords[i + 1] = (mFalseNorthing + mRho0 - rho * Math.cos(theta))
+					/ mUnit;
+		}
+	}
+
+	/**
+	 * Unprojects interleaved x, y pairs to longitude, latitude pairs in
+	 * degrees, in place.
+	 */
+	void inverse(double[] coords, int offset, int count) {
+		for (int i = offset, end = offset + 2 * count; i < end; i += 2) {
+			double x = coords[i] * mUnit - mFalseEasting;
+			double y = mRho0 - (coords[i + 1] * mUnit - mFalseNorthing);
+			double rho = Math.signum(mN) * Math.sqrt(x * x + y * y);
+			double theta = mN > 0 ? Math.atan2(x, y) : Math.atan2(-x, -y);
+			double t = Math.pow(rho / mAF, 1 / mN);
+
+			// iterate for the latitude, Snyder (7-9)
+			double phi = Math.PI / 2 - 2 * Math.atan(t);
+			for (int k = 0; k < 15; k++) {
+				double es = E * Math.sin(phi);
+				double next = Math.PI / 2 - 2
+						* Math.atan(t * Math.pow((1 - es) / (1 + es), E / 2));
+				if (Math.abs(next - phi) < 1e-12) {
+					phi = next;
+					break;
+				}
+				phi = next;
+			}
+			coords[i] = Math.toDegrees(theta / mN + mLon0);
+			coords[i + 1] = Math.toDegrees(phi);
+		}
+	}
+
+	private static double m(double phi) {
+		double es = E * Math.sin(phi);
+		return Math.cos(phi) / Math.sqrt(1 - es * es);
+	}
+
+	private static double t(double phi) {
+		double es = E * Math.sin(phi);
+		return Math.tan(Math.PI / 4 - phi / 2)
+				/ Math.pow((1 - es) / (1 + es), E / 2);
+	}
+
+}
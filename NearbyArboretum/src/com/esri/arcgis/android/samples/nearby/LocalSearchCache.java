@@ -0,0 +1,389 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.util.Log;
+
+/**
+ * Two-tier cache for local search results. Recently used entries are kept in
+ * an in-memory LRU map, and every entry is also written to a file in the
+ * cache directory so results survive the activity being recreated.
+ *
+ * Searches are keyed by criteria and by the grid cell containing the search
+ * location. The cell size is a fraction of the search radius, so small moves
+ * of the user map to the same key. Callers should run the actual search at
+ * the cell center (see {@link #snapLatitude(double)} and
+ * {@link #snapLongitude(double, double)}) so that a cached answer is the same
+ * one the network would have returned.
+ *
+ * Only the memory tier is guarded by the cache's lock; files are read and
+ * written outside it, so a slow disk does not hold up other lookups. The disk
+ * tier is swept every so often: expired files are deleted, then the oldest
+ * ones until at most a given number are left.
+ *
+ */
+class LocalSearchCache {
+
+	private static final String TAG = "LocalSearchCache";
+
+	// Bumped whenever the layout of the cache files changes.
+	private static final int FILE_VERSION = 1;
+
+	// Statute miles per degree of latitude.
+	private static final double MILES_PER_DEGREE = 69.0;
+
+	// Number of writes between sweeps of the disk tier.
+	private static final int SWEEP_INTERVAL = 32;
+
+	private final File mDirectory;
+	private final double mCellDegrees;
+	private final int mMaxFiles;
+	private final Map<String, Entry> mMemory;
+	private volatile long mTimeToLive;
+
+	// Guards renaming files into place and deleting them, so a file that was
+	// just replaced is never deleted as stale.
+	private final Object mDiskLock = new Object();
+	// Writes until the next sweep; the first write sweeps the files left by
+	// earlier runs.
+	private int mWritesToSweep = 0;
+
+	private int mMemoryHits = 0;
+	private int mDiskHits = 0;
+	private int mMisses = 0;
+
+	/**
+	 * @param directory
+	 *            directory the disk tier is written to
+	 * @param maxEntries
+	 *            number of searches kept in memory
+	 * @param maxFiles
+	 *            number of searches kept on disk
+	 * @param cellMiles
+	 *            edge length of a grid cell in miles
+	 * @param timeToLive
+	 *            age in milliseconds after which an entry is discarded
+	 */
+	LocalSearchCache(File directory, final int maxEntries, int maxFiles,
+			double cellMiles, long timeToLive) {
+		mDirectory = directory;
+		mMaxFiles = maxFiles;
+		mCellDegrees = cellMiles / MILES_PER_DEGREE;
+		mTimeToLive = timeToLive;
+		mMemory = new LinkedHashMap<String, Entry>(maxEntries, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			// Entry alone would name the map's own entry type here
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, LocalSearchCache.Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+		if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+			Log.w(TAG, "Unable to create " + mDirectory);
+		}
+	}
+
+	void setTimeToLive(long timeToLive) {
+		mTimeToLive = timeToLive;
+	}
+
+	/**
+	 * Returns the latitude of the center of the grid cell containing the given
+	 * latitude.
+	 */
+	double snapLatitude(double latitude) {
+		return (Math.floor(latitude / mCellDegrees) + 0.5) * mCellDegrees;
+	}
+
+	/**
+	 * Returns the longitude of the center of the grid cell containing the given
+	 * location. Cells are widened in longitude away from the equator so they
+	 * stay roughly square on the ground.
+	 */
+	double snapLongitude(double latitude, double longitude) {
+		double width = lonCellDegrees(latitude);
+		return (Math.floor(longitude / width) + 0.5) * width;
+	}
+
+	/**
+	 * Returns the cache key for a search with the given criteria at the given
+	 * location.
+	 */
+	String keyFor(String criteria, double latitude, double longitude) {
+		long row = (long) Math.floor(latitude / mCellDegrees);
+		long column = (long) Math.floor(longitude / lonCellDegrees(latitude));
+		return criteria.replaceAll("[^A-Za-z0-9]", "_") + "_" + row + "_"
+				+ column;
+	}
+
+	/**
+	 * Returns the cached results for the key, or null if there is no entry or
+	 * it has expired. Memory is checked first, then disk.
+	 */
+	List<PointOfInterest> get(String key) {
+		long now = System.currentTimeMillis();
+		long timeToLive = mTimeToLive;
+
+		synchronized (this) {
+			Entry entry = mMemory.get(key);
+			if (entry != null) {
+				if (!entry.isExpired(now, timeToLive)) {
+					mMemoryHits++;
+					return entry.results;
+				}
+				mMemory.remove(key);
+			}
+		}
+
+		File file = fileFor(key);
+		long modified = file.lastModified();
+		if (modified != 0) {
+			Entry entry = read(file);
+			if (entry != null && !entry.isExpired(now, timeToLive)) {
+				synchronized (this) {
+					// a search stored meanwhile is newer than the file
+					Entry stored = mMemory.get(key);
+					if (stored == null) {
+						mMemory.put(key, entry);
+						stored = entry;
+					}
+					mDiskHits++;
+					return stored.results;
+				}
+			}
+			delete(file, modified);
+		}
+
+		synchronized (this) {
+			mMisses++;
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the results of a search in both tiers.
+	 */
+	void put(String key, List<PointOfInterest> results) {
+		Entry entry = new Entry(System.currentTimeMillis(),
+				Collections.unmodifiableList(new ArrayList<PointOfInterest>(
+						results)));
+		boolean sweep;
+		synchronized (this) {
+			mMemory.put(key, entry);
+			sweep = --mWritesToSweep < 0;
+			if (sweep) {
+				mWritesToSweep = SWEEP_INTERVAL;
+			}
+		}
+		write(fileFor(key), entry);
+		if (sweep) {
+			sweep();
+		}
+	}
+
+	synchronized int getMemoryHits() {
+		return mMemoryHits;
+	}
+
+	synchronized int getDiskHits() {
+		return mDiskHits;
+	}
+
+	synchronized int getMisses() {
+		return mMisses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "memory hits=" + mMemoryHits + ", disk hits=" + mDiskHits
+				+ ", misses=" + mMisses + ", in memory=" + mMemory.size();
+	}
+
+	private double lonCellDegrees(double latitude) {
+		double cos = Math.cos(Math.toRadians(snapLatitude(latitude)));
+		return mCellDegrees / Math.max(cos, 0.01);
+	}
+
+	private File fileFor(String key) {
+		return new File(mDirectory, key);
+	}
+
+	/*
+	 * Deletes the file unless it was replaced since it was last modified at
+	 * the given time.
+	 */
+	private void delete(File file, long modified) {
+		synchronized (mDiskLock) {
+			if (file.lastModified() == modified) {
+				file.delete();
+			}
+		}
+	}
+
+	/*
+	 * Deletes expired files, then the oldest ones until at most mMaxFiles are
+	 * left. A file's modification time is when its search was stored.
+	 */
+	private void sweep() {
+		File[] files = mDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
+		// newest first
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				long ta = a.lastModified();
+				long tb = b.lastModified();
+				return ta > tb ? -1 : (ta == tb ? 0 : 1);
+			}
+		});
+		long oldest = System.currentTimeMillis() - mTimeToLive;
+		int kept = 0;
+		for (File file : files) {
+			long modified = file.lastModified();
+			if (modified < oldest) {
+				delete(file, modified);
+			} else if (file.getName().endsWith(".tmp")) {
+				// still being written
+				continue;
+			} else if (kept < mMaxFiles) {
+				kept++;
+			} else {
+				delete(file, modified);
+			}
+		}
+	}
+
+	private static Entry read(File file) {
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			if (in.readInt() != FILE_VERSION) {
+				return null;
+			}
+			long created = in.readLong();
+			int count = in.readInt();
+			List<PointOfInterest> results = new ArrayList<PointOfInterest>(
+					count);
+			for (int i = 0; i < count; i++) {
+				String title = readString(in);
+				String rating = readString(in);
+				double latitude = in.readDouble();
+				double longitude = in.readDouble();
+				results.add(new PointOfInterest(title, rating, latitude,
+						longitude));
+			}
+			return new Entry(created, Collections.unmodifiableList(results));
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read " + file, e);
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	private void write(File file, Entry entry) {
+		// write to a temporary file first so a reader never sees a partial
+		// entry; the name is unique so concurrent writers of the same key do
+		// not collide
+		File temp = null;
+		DataOutputStream out = null;
+		try {
+			temp = File.createTempFile(file.getName(), ".tmp", mDirectory);
+			out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(temp)));
+			out.writeInt(FILE_VERSION);
+			out.writeLong(entry.created);
+			out.writeInt(entry.results.size());
+			for (PointOfInterest poi : entry.results) {
+				writeString(out, poi.title);
+				writeString(out, poi.rating);
+				out.writeDouble(poi.latitude);
+				out.writeDouble(poi.longitude);
+			}
+			out.close();
+			out = null;
+			synchronized (mDiskLock) {
+				if (!temp.renameTo(file)) {
+					temp.delete();
+				}
+			}
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to write " + file, e);
+			if (temp != null) {
+				temp.delete();
+			}
+		} finally {
+			close(out);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// nothing useful to do
+			}
+		}
+	}
+
+	private static class Entry {
+		final long created;
+		final List<PointOfInterest> results;
+
+		Entry(long created, List<PointOfInterest> results) {
+			this.created = created;
+			this.results = results;
+		}
+
+		boolean isExpired(long now, long timeToLive) {
+			return now - created > timeToLive;
+		}
+	}
+
+}
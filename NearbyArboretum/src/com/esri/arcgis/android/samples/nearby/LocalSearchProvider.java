@@ -0,0 +1,45 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A source of local search results. Implementations are called off the UI
+ * thread and may block.
+ *
+ */
+interface LocalSearchProvider {
+
+	/**
+	 * Finds the points of interest matching the criteria within a radius of a
+	 * location.
+	 * 
+	 * @param criteria
+	 *            what to search for, for example 'coffee' or 'bar'
+	 * @param latitude
+	 *            WGS84 latitude of the search center
+	 * @param longitude
+	 *            WGS84 longitude of the search center
+	 * @param radiusMiles
+	 *            search radius in miles
+	 * @return the results, empty if nothing matched
+	 * @throws IOException
+	 *             if the results could not be retrieved
+	 */
+	List<PointOfInterest> search(String criteria, double latitude,
+			double longitude, double radiusMiles) throws IOException;
+
+}
@@ -0,0 +1,108 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+/**
+ * Decides when the user has moved far enough from the location of the last
+ * search for a new search to be worthwhile.
+ *
+ * GPS jitter is filtered in three ways: fixes less accurate than a limit are
+ * ignored, a move must be larger than the accuracy of the fix reporting it,
+ * and the move must be confirmed by several consecutive fixes before it
+ * counts.
+ *
+ */
+final class MovementTracker {
+
+	// Mean radius of the earth in statute miles.
+	private static final double EARTH_RADIUS_MILES = 3958.8;
+	private static final double METERS_PER_MILE = 1609.344;
+
+	private final double mThresholdMiles;
+	private final float mMaxAccuracyMeters;
+	private final int mConfirmations;
+
+	private double mAnchorLatitude = Double.NaN;
+	private double mAnchorLongitude = Double.NaN;
+	private int mPending = 0;
+
+	/**
+	 * @param thresholdMiles
+	 *            distance from the anchor that triggers a search
+	 * @param maxAccuracyMeters
+	 *            fixes with a larger accuracy radius are ignored
+	 * @param confirmations
+	 *            number of consecutive fixes beyond the threshold required
+	 */
+	MovementTracker(double thresholdMiles, float maxAccuracyMeters,
+			int confirmations) {
+		mThresholdMiles = thresholdMiles;
+		mMaxAccuracyMeters = maxAccuracyMeters;
+		mConfirmations = Math.max(1, confirmations);
+	}
+
+	/**
+	 * Records the location the current results were searched from.
+	 */
+	void setAnchor(double latitude, double longitude) {
+		mAnchorLatitude = latitude;
+		mAnchorLongitude = longitude;
+		mPending = 0;
+	}
+
+	boolean hasAnchor() {
+		return !Double.isNaN(mAnchorLatitude);
+	}
+
+	/**
+	 * Feeds a location fix to the tracker.
+	 *
+	 * @param accuracyMeters
+	 *            accuracy radius of the fix, or a negative value if unknown
+	 * @return true if the user has moved far enough that a new search should
+	 *         be run
+	 */
+	boolean onFix(double latitude, double longitude, float accuracyMeters) {
+		if (!hasAnchor() || accuracyMeters > mMaxAccuracyMeters) {
+			return false;
+		}
+		double moved = distanceMiles(mAnchorLatitude, mAnchorLongitude,
+				latitude, longitude);
+		if (moved < mThresholdMiles
+				|| moved * METERS_PER_MILE < accuracyMeters) {
+			mPending = 0;
+			return false;
+		}
+		if (++mPending < mConfirmations) {
+			return false;
+		}
+		mPending = 0;
+		return true;
+	}
+
+	/**
+	 * Great circle distance between two WGS84 locations, in miles.
+	 */
+	static double distanceMiles(double lat1, double lon1, double lat2,
+			double lon2) {
+		double dLat = Math.toRadians(lat2 - lat1);
+		double dLon = Math.toRadians(lon2 - lon1);
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+				* Math.sin(dLon / 2) * Math.sin(dLon / 2);
+		return 2 * EARTH_RADIUS_MILES
+				* Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+	}
+
+}
@@ -13,14 +13,19 @@
 
 package com.esri.arcgis.android.samples.nearby;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.Reader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 import android.app.Activity;
@@ -29,13 +34,9 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.RectF;
+import android.graphics.Rect;
 import android.location.Location;
 import android.location.LocationListener;
-import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Menu;
@@ -49,20 +50,21 @@ import android.widget.Toast;
 
 import com.esri.android.map.Callout;
 import com.esri.android.map.GraphicsLayer;
-import com.esri.android.map.Layer;
 import com.esri.android.map.LocationDisplayManager;
 import com.esri.android.map.LocationDisplayManager.AutoPanMode;
 import com.esri.android.map.MapView;
-import com.esri.android.map.ags.ArcGISDynamicMapServiceLayer;
-import com.esri.android.map.ags.ArcGISFeatureLayer;
 import com.esri.android.map.ags.ArcGISTiledMapServiceLayer;
 import com.esri.android.map.event.OnSingleTapListener;
 import com.esri.android.map.event.OnStatusChangedListener;
+import com.esri.arcgis.android.samples.arboretum.ArboretumLayer;
+import com.esri.arcgis.android.samples.arboretum.LatencyRecorder;
+import com.esri.arcgis.android.samples.arboretum.LayerRegistry;
+import com.esri.arcgis.android.samples.arboretum.PointGridIndex;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler;
+import com.esri.arcgis.android.samples.arboretum.TaskScheduler.Priority;
 import com.esri.core.geometry.Envelope;
-import com.esri.core.geometry.GeometryEngine;
 import com.esri.core.geometry.LinearUnit;
 import com.esri.core.geometry.Point;
-import com.esri.core.geometry.SpatialReference;
 import com.esri.core.geometry.Unit;
 import com.esri.core.map.Graphic;
 import com.esri.core.symbol.PictureMarkerSymbol;
@@ -84,14 +86,53 @@ public class Nearby extends Activity {
 	// searching purpose. It is also used to construct the extent which
 	// map zooms to after the first GPS fix is retrieved.
 	final static double SEARCH_RADIUS = 5;
+	// Tap tolerance in pixels when selecting a result graphic.
+	final static int TAP_TOLERANCE = 25;
+	// Bundled dataset for on-device searches, in the assets folder.
+	final static String POI_ASSET = "pois.tsv";
+	// Search results are cached per grid cell of a quarter of the search
+	// radius, for CACHE_TIME_TO_LIVE milliseconds.
+	final static double CACHE_CELL_FRACTION = 0.25;
+	final static int CACHE_MEMORY_ENTRIES = 16;
+	final static int CACHE_DISK_ENTRIES = 256;
+	final static long CACHE_TIME_TO_LIVE = 30 * 60 * 1000;
+	// Network searches that run at once; later ones wait for a thread.
+	final static int SEARCH_THREADS = 2;
+	// In continuous search mode the last search is re-run once the user has
+	// moved this fraction of the search radius, as confirmed by
+	// REFRESH_CONFIRMATIONS consecutive fixes no worse than
+	// REFRESH_MAX_ACCURACY meters.
+	final static boolean CONTINUOUS_SEARCH = true;
+	final static double REFRESH_FRACTION = 0.25;
+	final static float REFRESH_MAX_ACCURACY = 50;
+	final static int REFRESH_CONFIRMATIONS = 2;
+
+	private static final String TAG = "Nearby";
 
 	MapView mMapView = null;
+	LayerRegistry mLayers;
 	ArcGISTiledMapServiceLayer mBaseMap;
 	GraphicsLayer graphicsLayer = null;
 	PictureMarkerSymbol coffeeIcon, barIcon;
 	JSONObject results = null;
-	ProgressDialog progress;
 	LocationDisplayManager lDisplayManager;
+	LocalSearchCache searchCache;
+	// Created on first search, see getSearchProvider()
+	private LocalSearchProvider searchProvider;
+	// Runs the network calls shared by coalesced searches
+	final ExecutorService searchExecutor = Executors
+			.newFixedThreadPool(SEARCH_THREADS);
+	// The newest search; only its results are published
+	AsyncLocalSearch currentSearch = null;
+	// Spatial index over the search result graphics, for tap resolution
+	PointGridIndex graphicIndex = PointGridIndex.EMPTY;
+	// Graphics on the layer, keyed by PointOfInterest.key()
+	final Map<String, PublishedResult> published =
+			new HashMap<String, PublishedResult>();
+	// Criteria of the last search, re-run as the user moves
+	String activeCriteria = null;
+	final MovementTracker movementTracker = new MovementTracker(SEARCH_RADIUS
+			* REFRESH_FRACTION, REFRESH_MAX_ACCURACY, REFRESH_CONFIRMATIONS);
 
 	View content;
 	Callout callout;
@@ -105,44 +146,21 @@ public class Nearby extends Activity {
 //		mBaseMap = new ArcGISTiledMapServiceLayer(getResources().getString(R.string.basemap_url));
 //		mMapView.addLayer(mBaseMap);
 
-		Layer layer1 = new ArcGISDynamicMapServiceLayer(	// plants on map service layer 1
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/UWBG/MapServer");
-
-		Layer layer2 = new ArcGISDynamicMapServiceLayer( 	// no plants
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/Basemaps/MapServer");
-
-		Layer layer3 = new ArcGISDynamicMapServiceLayer( 	// plants on map service layer 3
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PublicFeatures/MapServer");
-
-		Layer layer4 = new ArcGISFeatureLayer(		// plants
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PublicFeatures/MapServer/3",
-				ArcGISFeatureLayer.MODE.ONDEMAND);
-
-		Layer layer5 = new ArcGISFeatureLayer( 		// plants
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/UWBG/MapServer/1", 
-				ArcGISFeatureLayer.MODE.ONDEMAND);
-				
-		Layer layer6 = new ArcGISFeatureLayer( 
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PlantswithBGBase/MapServer/0",
-				ArcGISFeatureLayer.MODE.ONDEMAND);
-		
-		Layer layer7 = new ArcGISDynamicMapServiceLayer( 
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PlantswithBGBase/MapServer/0");
-		
-		Layer layer8 = new ArcGISDynamicMapServiceLayer( 
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/ArbPhotography/MapServer");
-		
-		Layer layer3Tiled = new ArcGISTiledMapServiceLayer( 	// plants on map service layer 3
-				"http://uwbgmaps.cfr.washington.edu/arcgis/rest/services/PublicFeatures/MapServer");
-				
-		mMapView.addLayer(layer3);
-		mMapView.addLayer(layer6);
+		// Only the layers shown are created; see ArboretumLayer for the other
+		// arboretum services.
+		mLayers = new LayerRegistry(mMapView);
+		mLayers.enable(ArboretumLayer.PUBLIC_FEATURES);
+		mLayers.enable(ArboretumLayer.PLANTS_WITH_BG_BASE_FEATURES);
 
 		callout = mMapView.getCallout();
 		callout.setStyle(R.xml.calloutstyle);
 
 		content = createContent();
 
+		searchCache = new LocalSearchCache(new File(getCacheDir(),
+				"localsearch"), CACHE_MEMORY_ENTRIES, CACHE_DISK_ENTRIES,
+				SEARCH_RADIUS * CACHE_CELL_FRACTION, CACHE_TIME_TO_LIVE);
+
 		graphicsLayer = new GraphicsLayer();
 		mMapView.addLayer(graphicsLayer);
 
@@ -166,18 +184,25 @@ public class Nearby extends Activity {
 						boolean locationChanged = false;
 
 						// Zooms to the current location when first GPS fix arrives.
+						// Later fixes refresh the results in continuous search
+						// mode.
 						@Override
 						public void onLocationChanged(Location loc) {
+							if (CONTINUOUS_SEARCH
+									&& activeCriteria != null
+									&& currentSearch == null
+									&& movementTracker.onFix(loc.getLatitude(),
+											loc.getLongitude(),
+											loc.hasAccuracy() ? loc.getAccuracy()
+													: -1)) {
+								startSearch(activeCriteria, true);
+							}
 							if (!locationChanged) {
 								locationChanged = true;
 								double locy = loc.getLatitude();
 								double locx = loc.getLongitude();
-								Point wgspoint = new Point(locx, locy);
-								Point mapPoint = (Point) GeometryEngine
-										.project(wgspoint,
-												SpatialReference.create(4326),
-//												SpatialReference.create(2285),	// NAD83 Public Features
-												mMapView.getSpatialReference());
+								Point mapPoint = Projector.fromWgs84(locx, locy,
+										mMapView.getSpatialReference());
 
 								Unit mapUnit = mMapView.getSpatialReference()
 										.getUnit();
@@ -224,13 +249,20 @@ public class Nearby extends Activity {
 
 				callout.hide();
 
-				// Handles the tapping on Graphic
+				// Handles the tapping on Graphic. The nearest graphic within
+				// the tap tolerance is looked up in the local index.
 
-				int[] graphicIDs = graphicsLayer.getGraphicIDs(x, y, 25);
-				if (graphicIDs != null && graphicIDs.length > 0) {
-					Graphic gr = graphicsLayer.getGraphic(graphicIDs[0]);
-					updateContent((String) gr.getAttributeValue("Rating"),
-							(String) gr.getAttributeValue("Title"));
+				Point tapPoint = mMapView.toMapPoint(x, y);
+				if (tapPoint == null) {
+					return;
+				}
+				int graphicID = graphicIndex.nearest(tapPoint.getX(),
+						tapPoint.getY(), TAP_TOLERANCE * mMapView.getResolution());
+				if (graphicID >= 0) {
+					Graphic gr = graphicsLayer.getGraphic(graphicID);
+					updateContent(
+							(String) gr.getAttributeValue(PoiAttributes.RATING),
+							(String) gr.getAttributeValue(PoiAttributes.TITLE));
 					Point location = (Point) gr.getGeometry();
 					callout.setOffset(0, -15);
 					callout.show(location, content);
@@ -255,9 +287,8 @@ public class Nearby extends Activity {
 		case R.id.bar:
 			if (mMapView.isLoaded()) {
 				try {
-					AsyncLocalSearch asycst = new AsyncLocalSearch();
-					String[] searchCriteria = { "bar" };
-					asycst.execute(searchCriteria);
+					activeCriteria = "bar";
+					startSearch(activeCriteria, false);
 
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -268,9 +299,8 @@ public class Nearby extends Activity {
 		case R.id.coffee:
 			if (mMapView.isLoaded()) {
 				try {
-					AsyncLocalSearch asycst = new AsyncLocalSearch();
-					String[] searchCriteria = { "coffee" };
-					asycst.execute(searchCriteria);
+					activeCriteria = "coffee";
+					startSearch(activeCriteria, false);
 
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -285,6 +315,146 @@ public class Nearby extends Activity {
 		}
 	}
 
+	/**
+	 * Starts a search, cancelling the one in progress if any. The cancelled
+	 * search stops waiting at once; its request is abandoned unless an
+	 * identical search is still waiting for it. A search in progress for the
+	 * same criteria and location is left running instead, so the new one
+	 * joins its request rather than starting another.
+	 * 
+	 * @param criteria
+	 *            the query criteria
+	 * @param refresh
+	 *            whether this is a quiet refresh after the user moved
+	 */
+	void startSearch(String criteria, boolean refresh) {
+		AsyncLocalSearch previous = currentSearch;
+		currentSearch = new AsyncLocalSearch(criteria, refresh);
+		currentSearch.start();
+		// the previous search, no longer current, ignores its result
+		if (previous != null && !previous.isSameRequest(currentSearch)) {
+			previous.cancel();
+		}
+	}
+
+	/**
+	 * Returns the provider searches are run against. The bundled on-device
+	 * dataset is used when it has any points; otherwise searches go to YQL over
+	 * HTTP, behind the search cache. Called off the UI thread since loading
+	 * the dataset may take a while.
+	 * 
+	 * @return the search provider
+	 */
+	synchronized LocalSearchProvider getSearchProvider() {
+		if (searchProvider == null) {
+			OnDeviceSearchProvider onDevice = null;
+			try {
+				Reader reader = new InputStreamReader(getAssets().open(
+						POI_ASSET), "UTF-8");
+				try {
+					onDevice = OnDeviceSearchProvider.load(reader);
+				} finally {
+					reader.close();
+				}
+			} catch (IOException e) {
+				Log.i(TAG, "No on-device POI dataset: " + e.getMessage());
+			}
+			if (onDevice != null && onDevice.size() > 0) {
+				Log.i(TAG, "Searching " + onDevice.size() + " on-device POIs");
+				searchProvider = onDevice;
+			} else {
+				searchProvider = new CachingSearchProvider(
+						new SingleFlightSearchProvider(new YqlSearchProvider(),
+								searchExecutor), searchCache);
+			}
+		}
+		return searchProvider;
+	}
+
+	/**
+	 * Puts a set of search results on the map with one batched add, and
+	 * rebuilds the tap index.
+	 * 
+	 * When merging, results that are already on the layer are left in place,
+	 * only new results are added and only results that are no longer returned
+	 * are removed. Otherwise the layer is cleared first.
+	 * 
+	 * @param pois
+	 *            the search results
+	 * @param graphics
+	 *            the graphic for each result, in the same order
+	 * @param merge
+	 *            whether to merge into the current results
+	 */
+	void publishResults(List<PointOfInterest> pois, Graphic[] graphics,
+			boolean merge) {
+		Map<String, Graphic> incoming = new HashMap<String, Graphic>();
+		for (int i = 0; i < graphics.length; i++) {
+			incoming.put(pois.get(i).key(), graphics[i]);
+		}
+
+		if (merge) {
+			List<String> stale = new ArrayList<String>();
+			for (String key : published.keySet()) {
+				if (!incoming.containsKey(key)) {
+					stale.add(key);
+				}
+			}
+			int[] staleIds = new int[stale.size()];
+			for (int i = 0; i < staleIds.length; i++) {
+				staleIds[i] = published.remove(stale.get(i)).id;
+			}
+			if (staleIds.length > 0) {
+				graphicsLayer.removeGraphics(staleIds);
+			}
+			incoming.keySet().removeAll(published.keySet());
+		} else {
+			graphicsLayer.removeAll();
+			published.clear();
+		}
+
+		if (!incoming.isEmpty()) {
+			List<String> keys = new ArrayList<String>(incoming.keySet());
+			Graphic[] added = new Graphic[keys.size()];
+			for (int i = 0; i < added.length; i++) {
+				added[i] = incoming.get(keys.get(i));
+			}
+			int[] ids = graphicsLayer.addGraphics(added);
+			for (int i = 0; i < ids.length; i++) {
+				Point point = (Point) added[i].getGeometry();
+				published.put(keys.get(i), new PublishedResult(ids[i],
+						point.getX(), point.getY()));
+			}
+		}
+
+		int[] ids = new int[published.size()];
+		double[] xs = new double[ids.length];
+		double[] ys = new double[ids.length];
+		int i = 0;
+		for (PublishedResult result : published.values()) {
+			ids[i] = result.id;
+			xs[i] = result.x;
+			ys[i] = result.y;
+			i++;
+		}
+		graphicIndex = new PointGridIndex(ids, xs, ys);
+	}
+
+	/*
+	 * Graphic id and map location of a result on the graphics layer.
+	 */
+	static class PublishedResult {
+		final int id;
+		final double x;
+		final double y;
+
+		PublishedResult(int id, double x, double y) {
+			this.id = id;
+			this.x = x;
+			this.y = y;
+		}
+	}
+
 	/**
 	 * Creates a LinearLayout which contains tile and rating.
 	 * 
@@ -365,16 +535,110 @@ public class Nearby extends Activity {
 	}
 
 	/*
-	 * Executes yahoo local search task asynchronously. The first parameter is
-	 * the query criteria like'coffee', 'shop', etc.
+	 * Executes local search task asynchronously against the current
+	 * LocalSearchProvider, on the shared TaskScheduler. The criteria is the
+	 * query like'coffee', 'shop', etc. Results are collected in the
+	 * background; the graphics layer is then updated once, on the UI thread,
+	 * when the search completes.
+	 * 
+	 * A refresh is a search re-run because the user moved. It runs without a
+	 * progress dialog and merges its results into those already shown. As
+	 * the user is not waiting on it, it runs at normal rather than
+	 * interactive priority.
+	 * 
+	 * Only the newest search, currentSearch, publishes its results.
 	 */
 
-	private class AsyncLocalSearch extends AsyncTask<String, Void, Boolean> {
-		// Determine if the query returned an array of results
+	private class AsyncLocalSearch implements Callable<Boolean>,
+			TaskScheduler.Callback<Boolean> {
+		// Determine if the query returned any results
 		boolean success = false;
+		// Results and their graphics, published in one call
+		List<PointOfInterest> pois = new ArrayList<PointOfInterest>();
+		Graphic[] graphics = new Graphic[0];
+		final String criteria;
+		final boolean refresh;
+		ProgressDialog progress;
+		Future<Boolean> future;
+		long started;
+		// where the search is run from, read when it starts
+		Location location;
+
+		AsyncLocalSearch(String criteria, boolean refresh) {
+			this.criteria = criteria;
+			this.refresh = refresh;
+		}
+
+		void start() {
+			started = LatencyRecorder.now();
+			location = lDisplayManager != null ? lDisplayManager
+					.getLocation() : null;
+			onPreExecute();
+			future = TaskScheduler.getInstance().submit(
+					refresh ? Priority.NORMAL : Priority.INTERACTIVE, this,
+					this);
+		}
+
+		/*
+		 * Returns true if the other search asks the provider the same
+		 * question, so both share one request.
+		 */
+		boolean isSameRequest(AsyncLocalSearch other) {
+			return criteria != null && criteria.equals(other.criteria)
+					&& location != null && other.location != null
+					&& location.getLatitude() == other.location.getLatitude()
+					&& location.getLongitude() == other.location
+							.getLongitude();
+		}
+
+		/*
+		 * Cancels the search; the callback is then never called.
+		 */
+		void cancel() {
+			if (future != null) {
+				future.cancel(true);
+			}
+			onCancelled();
+		}
+
+		private void onCancelled() {
+			if (progress != null) {
+				progress.dismiss();
+			}
+		}
 
 		@Override
-		protected void onPostExecute(Boolean result) {
+		public void onError(Exception e) {
+			Log.w(TAG, "Search failed", e);
+			onResult(Boolean.FALSE);
+		}
+
+		@Override
+		public void onResult(Boolean result) {
+			if (currentSearch != this) {
+				// superseded by a newer search
+				onCancelled();
+				return;
+			}
+			currentSearch = null;
+			LatencyRecorder recorder = LatencyRecorder.getInstance();
+
+			if (refresh) {
+				// keep the current results if the refresh failed
+				if (success) {
+					long start = LatencyRecorder.now();
+					publishResults(pois, graphics, true);
+					recorder.record("search.publish", start);
+				}
+				recorder.record("search.refresh", started);
+				return;
+			}
+			// replace the previous results with a single batched update
+			long start = LatencyRecorder.now();
+			publishResults(pois, graphics, false);
+			recorder.record("search.publish", start);
+			recorder.record("search.total", started);
+
 			progress.dismiss();
 			callout.hide();
 			// send toast message based on results of query
@@ -392,226 +656,113 @@ public class Nearby extends Activity {
 			}
 		}
 
-		@Override
-		protected void onPreExecute() {
+		private void onPreExecute() {
+			// the user is re-anchored wherever a search is run from
+			if (location != null) {
+				movementTracker.setAnchor(location.getLatitude(),
+						location.getLongitude());
+			}
+			if (refresh) {
+				return;
+			}
 			// show progress bar while executing task
 			progress = ProgressDialog.show(Nearby.this, "",
 					"Please wait for search results coming back....", true);
 		}
 
-		@SuppressWarnings("boxing")
 		@Override
-		protected Boolean doInBackground(String... params) {
-			// handle case of no parameters
-			if (params == null || params.length == 0) {
+		public Boolean call() {
+			// time from the request to the start of the search
+			LatencyRecorder.getInstance().record("search.tap", started);
+			// handle case of no criteria or no location yet
+			if (criteria == null || location == null) {
 				success = false;
 				return success;
 			}
-			// remove any previous graphics
-			graphicsLayer.removeAll();
+			Symbol symbol = "coffee".equals(criteria) ? coffeeIcon : barIcon;
 
-			// Creates URL that is passed to yahoo local search web service end
-			// point
-			String criteria = params[0];
-
-			// base url
-			String baseURL = "http://query.yahooapis.com/v1/public/yql?q=";
-			// base query
-			String query = "select * from local.search where";
-			// get user location
-			Location location = mMapView.getLocationDisplayManager()
-					.getLocation();
-			// convert to lat/lon
-			String latStr = Double.toString(location.getLatitude());
-			String lonStr = Double.toString(location.getLongitude());
-			// create query from user location and defined SEARCH_RADIUS
-			query += (" latitude=" + latStr + " and " + "longitude=" + lonStr
-					+ " and " + "radius=" + Double.toString(SEARCH_RADIUS)
-					+ " and query='" + criteria + "'");
-			// encode the query part of the url
-			String encodeURL = baseURL + Uri.encode(query)
-					+ "&format=json&diagnostics=true&callback=";
-
-			// Uses URLConnection to communicate with yahool local search web
-			// service end point. Once results come back, create a JSON object
-			// and get a JSON array from its content. While iterating the JSON
-			// array, we extract each result's attributes that we are interested
-			// in,for example, location, title, and rating.
-			// A graphic is created by using these attributes for each result,
-			// and therefore added into a GraphicsLayer.
-
-			URL url = null;
 			try {
-				// create the URL from encoded string
-				url = new URL(encodeURL);
-				// open the connection
-				URLConnection urlResponse = null;
-				urlResponse = url.openConnection();
-				// read the response from URLConnection
-				BufferedReader br = new BufferedReader(new InputStreamReader(
-						urlResponse.getInputStream()));
-				String jsonString = "";
-				String line;
-				while ((line = br.readLine()) != null) {
-					jsonString += line;
-				}
-
-				br.close();
-
-				// parse the return JSON.
-				JSONObject queryResponse = new JSONObject(jsonString);
-				// every response from YQL includes a query element
-				queryResponse = queryResponse.getJSONObject("query");
-				// query element contains a results element
-				JSONObject jsonResults = queryResponse.getJSONObject("results");
-				// create a JSONArray to hold elements in results
-				JSONArray result = null;
-
-				// Get the JSONArray value associated with the Result key
-				try {
-					result = jsonResults.getJSONArray("Result");
-				} catch (JSONException e) {
-					// Result element not an array
-					success = false;
-					Log.d("ERROR", "JSON Object not an array");
-					return success;
-				}
-				// Result element is an array to parse
-				success = true;
-
-				// Get the number of search results in this set
-				int resultCount = queryResponse.length();
-
-				// Loop over each result and print the title, summary, and URL
-				for (int i = 0; i < resultCount; i++) {
-					try {
-						JSONObject resultObject = result.getJSONObject(i);
-						jsonResults = resultObject;
-						Point p = new Point(
-								Float.valueOf((String) (resultObject
-										.get("Longitude"))),
-								Float.valueOf((String) (resultObject
-										.get("Latitude"))));
-						String title = resultObject.getString("Title");
-						JSONObject object = resultObject
-								.getJSONObject("Rating");
-						String rating = (String) object.get("AverageRating");
-
-						Point point = (Point) GeometryEngine.project(p,
-								SpatialReference.create(4326),
-								mMapView.getSpatialReference());
-						Symbol symbol = null;
-						if (criteria == "coffee")
-							symbol = coffeeIcon;
-						else
-							symbol = barIcon;
-
-						HashMap<String, Object> attrMap = new HashMap<String, Object>();
-						attrMap.put("Title", title);
-						attrMap.put("Rating", rating);
-						graphicsLayer.addGraphic(new Graphic(point, symbol,
-								attrMap));
-
-					} catch (JSONException r) {
-						r.printStackTrace();
-					}
-				}
-
-			} catch (Exception e) {
+				// cancel() interrupts this call if the search is superseded
+				pois = getSearchProvider().search(criteria,
+						location.getLatitude(), location.getLongitude(),
+						SEARCH_RADIUS);
+			} catch (IOException e) {
 				e.printStackTrace();
 			}
+			graphics = toGraphics(pois, symbol);
 
+			success = !pois.isEmpty();
 			return success;
 		}
 
+		/*
+		 * Projects the search results onto the map and wraps each one in a
+		 * graphic sharing the given symbol. The attributes are views over the
+		 * results, so no per-graphic map is built.
+		 */
+		private Graphic[] toGraphics(List<PointOfInterest> pois, Symbol symbol) {
+			// project every location in one pass
+			double[] coords = new double[pois.size() * 2];
+			for (int i = 0; i < pois.size(); i++) {
+				coords[2 * i] = pois.get(i).longitude;
+				coords[2 * i + 1] = pois.get(i).latitude;
+			}
+			long start = LatencyRecorder.now();
+			Projector.fromWgs84(coords, mMapView.getSpatialReference());
+			LatencyRecorder.getInstance().record("search.project", start);
+
+			Graphic[] result = new Graphic[pois.size()];
+			for (int i = 0; i < result.length; i++) {
+				Point point = new Point(coords[2 * i], coords[2 * i + 1]);
+				result[i] = new Graphic(point, symbol, new PoiAttributes(
+						pois.get(i)));
+			}
+			return result;
+		}
+
 	}
 
 	@Override
 	protected void onDestroy() {
 		super.onDestroy();
+		if (currentSearch != null) {
+			currentSearch.cancel();
+		}
+		searchExecutor.shutdownNow();
 		mMapView = null;
 	}
 
 	/**
 	 * 
-	 * Custom view to draw the rating star
+	 * Custom view to draw the rating star. The stars for each level are taken
+	 * from the shared {@link RatingAtlas}, so drawing is a single bitmap copy.
 	 * 
 	 */
 	private class StarView extends View {
 
-		private Bitmap mBitmap;
-		private Paint mPaint = new Paint();
-		private Canvas mCanvas = new Canvas();
-		private Path mPath = new Path();
-		private RectF mRect = new RectF();
-		int width = 200;
-		int height = 40;
-		private int mLevel = 0;
-		float[] points = new float[10];
-		float dy;
+		private final Bitmap mAtlas;
+		private final Rect mSource = new Rect();
+		private final Rect mDest = new Rect();
+		int width;
+		int height;
 
 		public StarView(Context context) {
 			super(context);
-
-			mPaint.setFlags(Paint.ANTI_ALIAS_FLAG);
-			mRect.set(-6f, -6f, 6f, 6f);
-
-			double cDegree = 180.0;
-			for (int i = 0; i < 5; i++) {
-				points[2 * i] = (float) Math.cos(cDegree * 3.1415926 / 180);
-				points[2 * i + 1] = (float) Math.sin(cDegree * 3.1415926 / 180);
-				cDegree += 144;
-			}
-
+			mAtlas = RatingAtlas.get(context);
+			RatingAtlas.source(mAtlas, 0, mSource);
+			width = mSource.width();
+			height = mSource.height();
+			mDest.set(0, 0, width, height);
 		}
 
 		public void setLevel(int level) {
-			mLevel = level;
-
-		}
-
-		@Override
-		protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-			mBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
-			mCanvas.setBitmap(mBitmap);
-
-			dy = height * 0.5f;
-
-			mPath.moveTo(points[0], points[1]);
-			for (int i = 1; i < 5; i++) {
-				mPath.lineTo(points[i * 2], points[i * 2 + 1]);
-			}
-			mPath.close();
-
-			super.onSizeChanged(w, h, oldw, oldh);
-
+			RatingAtlas.source(mAtlas, level, mSource);
+			invalidate();
 		}
 
 		@Override
 		protected void onDraw(Canvas canvas) {
-
-			mCanvas.drawColor(0xbf1e1d1d);
-			float sx = 15;
-			for (int i = 0; i < 5; i++) {
-				mCanvas.save(Canvas.MATRIX_SAVE_FLAG);
-
-				mCanvas.translate(sx, dy);
-
-				mCanvas.scale(15, 15);
-				mCanvas.rotate(18.0f);
-				mPaint.setStyle(Paint.Style.FILL);
-				if (i < mLevel) {
-					mPaint.setColor(0xffffff00);
-				} else {
-					mPaint.setColor(Color.WHITE);
-				}
-				mCanvas.drawPath(mPath, mPaint);
-
-				mCanvas.restore();
-				sx += 30;
-			}
-			canvas.drawBitmap(mBitmap, 0, 0, null);
-
+			canvas.drawBitmap(mAtlas, mSource, mDest, null);
 		}
 
 		@Override
@@ -634,6 +785,7 @@ public class Nearby extends Activity {
 		super.onStop();
 		if (lDisplayManager != null)
 			lDisplayManager.stop();
+		LatencyRecorder.getInstance().export(this);
 
 	}
 
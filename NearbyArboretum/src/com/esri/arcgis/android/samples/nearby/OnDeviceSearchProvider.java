@@ -0,0 +1,115 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Answers searches from a dataset of points of interest held on the device,
+ * with no network access. There is one {@link PoiKdTree} per category, so a
+ * search only visits points of the requested category.
+ *
+ * The dataset is tab separated text, one point per line:
+ * 
+ * <pre>
+ * category	title	rating	latitude	longitude
+ * </pre>
+ * 
+ * Blank lines and lines starting with '#' are ignored.
+ *
+ */
+class OnDeviceSearchProvider implements LocalSearchProvider {
+
+	private final Map<String, PoiKdTree> mTrees;
+	private final int mSize;
+
+	OnDeviceSearchProvider(Map<String, List<PointOfInterest>> byCategory) {
+		mTrees = new HashMap<String, PoiKdTree>();
+		int size = 0;
+		for (Map.Entry<String, List<PointOfInterest>> entry : byCategory
+				.entrySet()) {
+			PoiKdTree tree = new PoiKdTree(entry.getValue());
+			mTrees.put(normalize(entry.getKey()), tree);
+			size += tree.size();
+		}
+		mSize = size;
+	}
+
+	/**
+	 * Reads a dataset in the format described above. Lines that cannot be
+	 * parsed are skipped. The reader is not closed.
+	 */
+	static OnDeviceSearchProvider load(Reader reader) throws IOException {
+		Map<String, List<PointOfInterest>> byCategory = new HashMap<String, List<PointOfInterest>>();
+		BufferedReader in = new BufferedReader(reader);
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (line.length() == 0 || line.charAt(0) == '#') {
+				continue;
+			}
+			String[] fields = line.split("\t");
+			if (fields.length < 5) {
+				continue;
+			}
+			try {
+				PointOfInterest poi = new PointOfInterest(fields[1],
+						fields[2].length() > 0 ? fields[2] : null,
+						Double.parseDouble(fields[3]),
+						Double.parseDouble(fields[4]));
+				String category = normalize(fields[0]);
+				List<PointOfInterest> list = byCategory.get(category);
+				if (list == null) {
+					list = new ArrayList<PointOfInterest>();
+					byCategory.put(category, list);
+				}
+				list.add(poi);
+			} catch (NumberFormatException e) {
+				// skip malformed line
+			}
+		}
+		return new OnDeviceSearchProvider(byCategory);
+	}
+
+	/**
+	 * Returns the number of points in the dataset.
+	 */
+	int size() {
+		return mSize;
+	}
+
+	@Override
+	public List<PointOfInterest> search(String criteria, double latitude,
+			double longitude, double radiusMiles) {
+		PoiKdTree tree = mTrees.get(normalize(criteria));
+		if (tree == null) {
+			return Collections.emptyList();
+		}
+		List<PointOfInterest> found = new ArrayList<PointOfInterest>();
+		tree.query(latitude, longitude, radiusMiles, found);
+		return found;
+	}
+
+	private static String normalize(String category) {
+		return category.trim().toLowerCase(Locale.US);
+	}
+
+}
@@ -0,0 +1,103 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only attribute map of a search result graphic. Every result shares the
+ * same fixed schema, so instead of allocating a HashMap per graphic the values
+ * are read straight from the underlying {@link PointOfInterest}.
+ *
+ */
+final class PoiAttributes extends AbstractMap<String, Object> {
+
+	static final String TITLE = "Title";
+	static final String RATING = "Rating";
+
+	// The shared schema, in iteration order.
+	private static final String[] KEYS = { TITLE, RATING };
+
+	private final PointOfInterest mPoi;
+	private Set<Entry<String, Object>> mEntrySet;
+
+	PoiAttributes(PointOfInterest poi) {
+		mPoi = poi;
+	}
+
+	@Override
+	public Object get(Object key) {
+		if (TITLE.equals(key)) {
+			return mPoi.title;
+		} else if (RATING.equals(key)) {
+			return mPoi.rating;
+		}
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return TITLE.equals(key) || RATING.equals(key);
+	}
+
+	@Override
+	public int size() {
+		return KEYS.length;
+	}
+
+	@Override
+	public Set<Entry<String, Object>> entrySet() {
+		if (mEntrySet == null) {
+			mEntrySet = new AbstractSet<Entry<String, Object>>() {
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					return new Iterator<Entry<String, Object>>() {
+						private int mIndex = 0;
+
+						@Override
+						public boolean hasNext() {
+							return mIndex < KEYS.length;
+						}
+
+						@Override
+						public Entry<String, Object> next() {
+							if (mIndex >= KEYS.length) {
+								throw new NoSuchElementException();
+							}
+							String key = KEYS[mIndex++];
+							return new SimpleImmutableEntry<String, Object>(key,
+									get(key));
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return KEYS.length;
+				}
+			};
+		}
+		return mEntrySet;
+	}
+
+}
@@ -0,0 +1,211 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.util.List;
+
+/**
+ * Static KD-tree over points of interest answering radius and nearest point
+ * queries.
+ *
+ * Locations are stored as unit vectors on the sphere, so a great circle radius
+ * becomes a straight line (chord) distance and the tree works the same
+ * anywhere on the globe. The tree is balanced and implicit: the node for the
+ * range [lo, hi) of the arrays is the median (lo + hi) / 2, and its children
+ * are the ranges on either side of it.
+ *
+ */
+final class PoiKdTree {
+
+	// Mean radius of the earth in statute miles.
+	private static final double EARTH_RADIUS_MILES = 3958.8;
+
+	private final PointOfInterest[] mPois;
+	// x, y, z of each node in tree order
+	private final double[] mCoords;
+
+	PoiKdTree(List<PointOfInterest> pois) {
+		int count = pois.size();
+		double[] coords = new double[count * 3];
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			PointOfInterest poi = pois.get(i);
+			toUnitVector(poi.latitude, poi.longitude, coords, i * 3);
+			order[i] = i;
+		}
+		build(order, coords, 0, count, 0);
+
+		mPois = new PointOfInterest[count];
+		mCoords = new double[count * 3];
+		for (int i = 0; i < count; i++) {
+			mPois[i] = pois.get(order[i]);
+			System.arraycopy(coords, order[i] * 3, mCoords, i * 3, 3);
+		}
+	}
+
+	int size() {
+		return mPois.length;
+	}
+
+	/**
+	 * Adds every point within radiusMiles of the location to out.
+	 */
+	void query(double latitude, double longitude, double radiusMiles,
+			List<PointOfInterest> out) {
+		double[] q = new double[3];
+		toUnitVector(latitude, longitude, q, 0);
+		double angle = Math.min(radiusMiles / EARTH_RADIUS_MILES, Math.PI);
+		double chord = 2 * Math.sin(angle / 2);
+		search(0, mPois.length, 0, q, chord, chord * chord, out);
+	}
+
+	/**
+	 * Returns the point closest to the location, or null if the tree is
+	 * empty.
+	 */
+	PointOfInterest nearest(double latitude, double longitude) {
+		if (mPois.length == 0) {
+			return null;
+		}
+		double[] q = new double[3];
+		toUnitVector(latitude, longitude, q, 0);
+		double[] bestDistance = { Double.POSITIVE_INFINITY };
+		return mPois[nearest(0, mPois.length, 0, q, 0, bestDistance)];
+	}
+
+	/*
+	 * Returns the index of the closest point in the range, or best if none is
+	 * closer than bestDistance[0], the squared chord distance of best.
+	 */
+	private int nearest(int lo, int hi, int axis, double[] q, int best,
+			double[] bestDistance) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int base = mid * 3;
+			double dx = q[0] - mCoords[base];
+			double dy = q[1] - mCoords[base + 1];
+			double dz = q[2] - mCoords[base + 2];
+			double d2 = dx * dx + dy * dy + dz * dz;
+			if (d2 < bestDistance[0]) {
+				bestDistance[0] = d2;
+				best = mid;
+			}
+			double d = q[axis] - mCoords[base + axis];
+			int next = axis == 2 ? 0 : axis + 1;
+			// the side holding the location first, then the other side if
+			// the splitting plane is closer than the best point so far
+			if (d <= 0) {
+				best = nearest(lo, mid, next, q, best, bestDistance);
+				lo = mid + 1;
+			} else {
+				best = nearest(mid + 1, hi, next, q, best, bestDistance);
+				hi = mid;
+			}
+			if (d * d >= bestDistance[0]) {
+				return best;
+			}
+			axis = next;
+		}
+		return best;
+	}
+
+	private void search(int lo, int hi, int axis, double[] q, double r,
+			double r2, List<PointOfInterest> out) {
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int base = mid * 3;
+			double dx = q[0] - mCoords[base];
+			double dy = q[1] - mCoords[base + 1];
+			double dz = q[2] - mCoords[base + 2];
+			if (dx * dx + dy * dy + dz * dz <= r2) {
+				out.add(mPois[mid]);
+			}
+			double d = q[axis] - mCoords[base + axis];
+			int next = axis == 2 ? 0 : axis + 1;
+			boolean left = d <= r;
+			boolean right = d >= -r;
+			if (left && right) {
+				search(lo, mid, next, q, r, r2, out);
+				lo = mid + 1;
+			} else if (left) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+			axis = next;
+		}
+	}
+
+	/*
+	 * Orders the range so that its median element on the axis sits at the
+	 * middle, then recurses into both halves on the next axis.
+	 */
+	private static void build(int[] order, double[] coords, int lo, int hi,
+			int axis) {
+		while (hi - lo > 1) {
+			int mid = (lo + hi) >>> 1;
+			select(order, coords, lo, hi - 1, mid, axis);
+			int next = axis == 2 ? 0 : axis + 1;
+			build(order, coords, lo, mid, next);
+			lo = mid + 1;
+			axis = next;
+		}
+	}
+
+	/*
+	 * Quickselect: partially sorts order[left..right] so that position k
+	 * holds the element it would hold if the range were sorted on the axis.
+	 */
+	private static void select(int[] order, double[] coords, int left,
+			int right, int k, int axis) {
+		while (right > left) {
+			double pivot = coords[order[(left + right) >>> 1] * 3 + axis];
+			int i = left;
+			int j = right;
+			while (i <= j) {
+				while (coords[order[i] * 3 + axis] < pivot) {
+					i++;
+				}
+				while (coords[order[j] * 3 + axis] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					int tmp = order[i];
+					order[i] = order[j];
+					order[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				right = j;
+			} else if (k >= i) {
+				left = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static void toUnitVector(double latitude, double longitude,
+			double[] out, int offset) {
+		double lat = Math.toRadians(latitude);
+		double lon = Math.toRadians(longitude);
+		double cosLat = Math.cos(lat);
+		out[offset] = cosLat * Math.cos(lon);
+		out[offset + 1] = cosLat * Math.sin(lon);
+		out[offset + 2] = Math.sin(lat);
+	}
+
+}
@@ -0,0 +1,45 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+/**
+ * A single local search result. It holds only the attributes shown in the
+ * callout and the WGS84 location, so it can be cached and turned into a
+ * graphic later without depending on the map.
+ *
+ */
+final class PointOfInterest {
+
+	final String title;
+	final String rating;
+	final double latitude;
+	final double longitude;
+
+	PointOfInterest(String title, String rating, double latitude,
+			double longitude) {
+		this.title = title;
+		this.rating = rating;
+		this.latitude = latitude;
+		this.longitude = longitude;
+	}
+
+	/**
+	 * Returns a key identifying this result across searches, made of its
+	 * title and location.
+	 */
+	String key() {
+		return title + "@" + latitude + "," + longitude;
+	}
+
+}
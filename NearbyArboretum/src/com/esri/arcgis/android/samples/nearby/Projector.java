@@ -0,0 +1,113 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import android.util.SparseArray;
+
+import com.esri.core.geometry.GeometryEngine;
+import com.esri.core.geometry.MultiPoint;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.SpatialReference;
+
+/**
+ * Projects WGS84 locations to and from the map's spatial reference in batches.
+ *
+ * Spatial references are created once per WKID and shared. The NAD83
+ * Washington North state plane system used by the arboretum services is
+ * handled in Java by {@link LambertConformalConic}; any other spatial
+ * reference is projected with a single GeometryEngine call per batch.
+ *
+ */
+final class Projector {
+
+	static final int WGS84 = 4326;
+	static final int WASHINGTON_NORTH_FTUS = 2285;
+
+	private static final SparseArray<SpatialReference> sReferences = new SparseArray<SpatialReference>();
+
+	private Projector() {
+	}
+
+	/**
+	 * Returns the shared spatial reference for the WKID.
+	 */
+	static synchronized SpatialReference spatialReference(int wkid) {
+		SpatialReference sr = sReferences.get(wkid);
+		if (sr == null) {
+			sr = SpatialReference.create(wkid);
+			sReferences.put(wkid, sr);
+		}
+		return sr;
+	}
+
+	/**
+	 * Projects interleaved longitude, latitude pairs to x, y pairs in the
+	 * target spatial reference, in place.
+	 */
+	static void fromWgs84(double[] coords, SpatialReference target) {
+		int count = coords.length / 2;
+		if (count == 0 || target.getID() == WGS84) {
+			return;
+		}
+		if (target.getID() == WASHINGTON_NORTH_FTUS) {
+			LambertConformalConic.WASHINGTON_NORTH_FTUS.forward(coords, 0,
+					count);
+			return;
+		}
+		project(coords, spatialReference(WGS84), target);
+	}
+
+	/**
+	 * Unprojects interleaved x, y pairs in the source spatial reference to
+	 * longitude, latitude pairs, in place.
+	 */
+	static void toWgs84(double[] coords, SpatialReference source) {
+		int count = coords.length / 2;
+		if (count == 0 || source.getID() == WGS84) {
+			return;
+		}
+		if (source.getID() == WASHINGTON_NORTH_FTUS) {
+			LambertConformalConic.WASHINGTON_NORTH_FTUS.inverse(coords, 0,
+					count);
+			return;
+		}
+		project(coords, source, spatialReference(WGS84));
+	}
+
+	/**
+	 * Projects a single WGS84 location to the target spatial reference.
+	 */
+	static Point fromWgs84(double longitude, double latitude,
+			SpatialReference target) {
+		double[] coords = { longitude, latitude };
+		fromWgs84(coords, target);
+		return new Point(coords[0], coords[1]);
+	}
+
+	private static void project(double[] coords, SpatialReference from,
+			SpatialReference to) {
+		MultiPoint points = new MultiPoint();
+		for (int i = 0; i < coords.length; i += 2) {
+			points.add(coords[i], coords[i + 1]);
+		}
+		MultiPoint projected = (MultiPoint) GeometryEngine.project(points,
+				from, to);
+		for (int i = 0; i < projected.getPointCount(); i++) {
+			Point point = projected.getPoint(i);
+			coords[2 * i] = point.getX();
+			coords[2 * i + 1] = point.getY();
+		}
+	}
+
+}
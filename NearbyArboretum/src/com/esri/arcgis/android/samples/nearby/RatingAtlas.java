@@ -0,0 +1,123 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.util.DisplayMetrics;
+import android.util.SparseArray;
+
+/**
+ * Pre-rendered rating stars. Only six ratings (0 to 5 stars) can be shown, so
+ * all of them are drawn once into a single bitmap, one strip per level stacked
+ * vertically, and every rating view copies its strip out of that bitmap.
+ *
+ * One atlas is kept per screen density and shared by all callouts. Its size
+ * is given in density independent pixels and scaled to the density when it
+ * is rendered, so the stars look the same on every screen.
+ *
+ */
+final class RatingAtlas {
+
+	static final int LEVELS = 6;
+	// size of one level in density independent pixels
+	static final int WIDTH = 200;
+	static final int HEIGHT = 40;
+
+	private static final int BACKGROUND = 0xbf1e1d1d;
+	private static final int STAR_ON = 0xffffff00;
+	private static final int STAR_OFF = Color.WHITE;
+
+	private static final SparseArray<Bitmap> sAtlases = new SparseArray<Bitmap>();
+
+	private RatingAtlas() {
+	}
+
+	/**
+	 * Returns the atlas for the density of the given context, rendering it on
+	 * first use.
+	 */
+	static synchronized Bitmap get(Context context) {
+		DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+		Bitmap atlas = sAtlases.get(metrics.densityDpi);
+		if (atlas == null) {
+			atlas = render(metrics.density);
+			sAtlases.put(metrics.densityDpi, atlas);
+		}
+		return atlas;
+	}
+
+	/**
+	 * Sets out to the area of the atlas holding the given rating level and
+	 * returns it. Levels outside 0 to 5 are clamped.
+	 */
+	static Rect source(Bitmap atlas, int level, Rect out) {
+		int clamped = Math.max(0, Math.min(LEVELS - 1, level));
+		int height = atlas.getHeight() / LEVELS;
+		out.set(0, clamped * height, atlas.getWidth(), (clamped + 1) * height);
+		return out;
+	}
+
+	private static Bitmap render(float density) {
+		int width = Math.round(WIDTH * density);
+		int height = Math.round(HEIGHT * density);
+		Bitmap atlas = Bitmap.createBitmap(width, height * LEVELS,
+				Bitmap.Config.RGB_565);
+		Canvas canvas = new Canvas(atlas);
+		// draw in density independent pixels from here on
+		canvas.scale((float) width / WIDTH, (float) height / HEIGHT);
+
+		Paint paint = new Paint();
+		paint.setFlags(Paint.ANTI_ALIAS_FLAG);
+		paint.setStyle(Paint.Style.FILL);
+
+		// five pointed star of unit radius
+		Path star = new Path();
+		double cDegree = 180.0;
+		for (int i = 0; i < 5; i++) {
+			float x = (float) Math.cos(Math.toRadians(cDegree));
+			float y = (float) Math.sin(Math.toRadians(cDegree));
+			if (i == 0) {
+				star.moveTo(x, y);
+			} else {
+				star.lineTo(x, y);
+			}
+			cDegree += 144;
+		}
+		star.close();
+
+		canvas.drawColor(BACKGROUND);
+		for (int level = 0; level < LEVELS; level++) {
+			float dy = level * HEIGHT + HEIGHT * 0.5f;
+			float sx = 15;
+			for (int i = 0; i < 5; i++) {
+				canvas.save(Canvas.MATRIX_SAVE_FLAG);
+				canvas.translate(sx, dy);
+				canvas.scale(15, 15);
+				canvas.rotate(18.0f);
+				paint.setColor(i < level ? STAR_ON : STAR_OFF);
+				canvas.drawPath(star, paint);
+				canvas.restore();
+				sx += 30;
+			}
+		}
+		return atlas;
+	}
+
+}
@@ -0,0 +1,108 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces identical searches that are in flight at the same time into one
+ * call to the delegate provider.
+ *
+ * The delegate call runs on the given executor and every caller waits for
+ * its result. A caller that is interrupted, for example because its search
+ * task was cancelled, stops waiting; when the last caller has gone the
+ * delegate call is cancelled too.
+ *
+ */
+class SingleFlightSearchProvider implements LocalSearchProvider {
+
+	private final LocalSearchProvider mDelegate;
+	private final Executor mExecutor;
+	private final Map<String, Flight> mFlights = new HashMap<String, Flight>();
+
+	SingleFlightSearchProvider(LocalSearchProvider delegate, Executor executor) {
+		mDelegate = delegate;
+		mExecutor = executor;
+	}
+
+	@Override
+	public List<PointOfInterest> search(final String criteria,
+			final double latitude, final double longitude,
+			final double radiusMiles) throws IOException {
+		String key = criteria + "|" + latitude + "|" + longitude + "|"
+				+ radiusMiles;
+
+		Flight flight;
+		boolean start = false;
+		synchronized (mFlights) {
+			flight = mFlights.get(key);
+			if (flight == null) {
+				flight = new Flight(new Callable<List<PointOfInterest>>() {
+					@Override
+					public List<PointOfInterest> call() throws IOException {
+						return mDelegate.search(criteria, latitude, longitude,
+								radiusMiles);
+					}
+				});
+				mFlights.put(key, flight);
+				start = true;
+			}
+			flight.waiters++;
+		}
+		if (start) {
+			mExecutor.execute(flight);
+		}
+
+		try {
+			return flight.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Search cancelled");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			synchronized (mFlights) {
+				if (--flight.waiters == 0) {
+					if (mFlights.get(key) == flight) {
+						mFlights.remove(key);
+					}
+					// nobody wants the answer any more
+					flight.cancel(true);
+				}
+			}
+		}
+	}
+
+	private static class Flight extends FutureTask<List<PointOfInterest>> {
+		// guarded by mFlights
+		int waiters = 0;
+
+		Flight(Callable<List<PointOfInterest>> callable) {
+			super(callable);
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+/* Copyright 2014 ESRI
+ *
+ * All rights reserved under the copyright laws of the United States
+ * and applicable international laws, treaties, and conventions.
+ *
+ * You may freely redistribute and use this sample code, with or
+ * without modification, provided you include the original copyright
+ * notice and use restrictions.
+ *
+ * See the Sample code usage restrictions document for further information.
+ *
+ */
+
+package com.esri.arcgis.android.samples.nearby;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import com.esri.arcgis.android.samples.arboretum.LatencyRecorder;
+
+/**
+ * Searches with the Yahoo YQL local.search table over HTTP.
+ *
+ * The response is read token by token with a streaming parser, so the body is
+ * never buffered as a whole. Once the query.results.Result array is reached,
+ * each element is turned into a {@link PointOfInterest} holding the attributes
+ * we are interested in, for example location, title, and rating.
+ *
+ */
+class YqlSearchProvider implements LocalSearchProvider {
+
+	static final String BASE_URL = "http://query.yahooapis.com/v1/public/yql?q=";
+
+	// Path to the array of results in a YQL local.search response.
+	private static final String[] RESULT_PATH = { "query", "results", "Result" };
+
+	// Shared, thread-safe factory for the streaming response parsers.
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final String mBaseURL;
+
+	YqlSearchProvider() {
+		this(BASE_URL);
+	}
+
+	/**
+	 * @param baseURL
+	 *            URL the encoded query is appended to
+	 */
+	YqlSearchProvider(String baseURL) {
+		mBaseURL = baseURL;
+	}
+
+	@Override
+	public List<PointOfInterest> search(String criteria, double latitude,
+			double longitude, double radiusMiles) throws IOException {
+		// create query from the location and radius
+		String query = "select * from local.search where latitude="
+				+ Double.toString(latitude) + " and longitude="
+				+ Double.toString(longitude) + " and radius="
+				+ Double.toString(radiusMiles) + " and query='" + criteria
+				+ "'";
+		// encode the query part of the url
+		URL url = new URL(mBaseURL + URLEncoder.encode(query, "UTF-8")
+				+ "&format=json&diagnostics=true&callback=");
+
+		// the network stage ends when the response starts to arrive; the
+		// body is read while it is parsed
+		LatencyRecorder recorder = LatencyRecorder.getInstance();
+		long start = LatencyRecorder.now();
+		URLConnection urlResponse = url.openConnection();
+		InputStream in = urlResponse.getInputStream();
+		recorder.record("search.network", start);
+		start = LatencyRecorder.now();
+		List<PointOfInterest> found = read(in);
+		recorder.record("search.parse", start);
+		return found;
+	}
+
+	/**
+	 * Reads the points of interest of a local.search response and closes the
+	 * stream.
+	 */
+	static List<PointOfInterest> read(InputStream in) throws IOException {
+		JsonParser parser = JSON_FACTORY.createJsonParser(in);
+		try {
+			// every response from YQL includes a query element, which
+			// contains a results element holding the Result array
+			if (!seekResultArray(parser)) {
+				return Collections.emptyList();
+			}
+
+			List<PointOfInterest> found = new ArrayList<PointOfInterest>();
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				// the search task interrupts us when it is cancelled
+				if (Thread.currentThread().isInterrupted()) {
+					throw new InterruptedIOException("Search cancelled");
+				}
+				PointOfInterest poi = parseResult(parser);
+				if (poi != null) {
+					found.add(poi);
+				}
+			}
+			return found;
+		} finally {
+			parser.close();
+		}
+	}
+
+	/*
+	 * Advances the parser to the start of the query.results.Result array.
+	 * Fields that are not on that path are skipped without being read into
+	 * memory. Returns false if the path is missing or Result is not an array.
+	 */
+	private static boolean seekResultArray(JsonParser parser)
+			throws IOException {
+		if (parser.nextToken() != JsonToken.START_OBJECT) {
+			return false;
+		}
+		for (int depth = 0; depth < RESULT_PATH.length; depth++) {
+			JsonToken value = null;
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				value = parser.nextToken();
+				if (RESULT_PATH[depth].equals(name)) {
+					break;
+				}
+				parser.skipChildren();
+				value = null;
+			}
+			if (value == null) {
+				return false;
+			}
+			if (depth == RESULT_PATH.length - 1) {
+				return value == JsonToken.START_ARRAY;
+			}
+			if (value != JsonToken.START_OBJECT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Reads a single Result object, the parser being positioned on its
+	 * START_OBJECT token. Returns null if the record has no usable location.
+	 */
+	private static PointOfInterest parseResult(JsonParser parser)
+			throws IOException {
+		String title = null;
+		String rating = null;
+		String latitude = null;
+		String longitude = null;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			if ("Title".equals(name)) {
+				title = parser.getText();
+			} else if ("Latitude".equals(name)) {
+				latitude = parser.getText();
+			} else if ("Longitude".equals(name)) {
+				longitude = parser.getText();
+			} else if ("Rating".equals(name) && value == JsonToken.START_OBJECT) {
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String ratingName = parser.getCurrentName();
+					parser.nextToken();
+					if ("AverageRating".equals(ratingName)) {
+						rating = parser.getText();
+					} else {
+						parser.skipChildren();
+					}
+				}
+			} else {
+				parser.skipChildren();
+			}
+		}
+
+		if (latitude == null || longitude == null) {
+			return null;
+		}
+		try {
+			return new PointOfInterest(title, rating,
+					Double.parseDouble(latitude), Double.parseDouble(longitude));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+}